@@ -0,0 +1,216 @@
+package com.littleDevil.game;
+
+import java.util.Arrays;
+
+/**
+ * A* on the flat tile index of a NavGrid (8 neighbors, √2 diagonals, euclidean heuristic),
+ * optionally weighted per tile by a CostLayer.
+ * All per-search arrays live in a per-thread SearchState and are reused between searches,
+ * the closed/open sets are generation stamps so nothing has to be cleared or allocated.
+ */
+public class AStarEngine {
+
+    public static final float DIAGONAL_COST = 1.4142f;
+
+    private static final ThreadLocal<SearchState> STATE = ThreadLocal.withInitial(SearchState::new);
+
+    public final NavGrid grid;
+    public final LandmarkHeuristic landmarks; // sharper heuristic for agents of its radius, may be null
+    public final CostLayer costs;             // per-tile cost multipliers, null = uniform costs
+
+    public AStarEngine(NavGrid grid) {
+        this(grid, null, null);
+    }
+
+    public AStarEngine(NavGrid grid, LandmarkHeuristic landmarks, CostLayer costs) {
+        this.grid = grid;
+        this.landmarks = landmarks != null && landmarks.grid == grid ? landmarks : null;
+        this.costs = costs != null && costs.grid == grid ? costs : null;
+    }
+
+    /**
+     * Finds a path between two tiles and writes its tile indices (start first) into pathOut.
+     * A tile is walkable when its clearance is larger than the agent radius (in tiles).
+     * pathOut has to hold at least grid.size() entries.
+     * @return number of tiles written, 0 when no path was found
+     */
+    public int findPath(int startX, int startY, int goalX, int goalY, int radius, int[] pathOut) {
+        SearchState s = STATE.get();
+        if (!start(s, startX, startY, goalX, goalY, radius)) return 0;
+        if (step(s, Integer.MAX_VALUE) != FOUND) return 0;
+        return writePath(s.parent, s.goal, pathOut);
+    }
+
+    // ==========================
+    // --- RESUMABLE SEARCHES ---
+    // ==========================
+
+    public static final int RUNNING = 0, FOUND = 1, FAILED = 2;
+
+    /**
+     * Sets up a search in the given state without expanding anything yet, continue it with step.
+     * @return false when start or goal are outside the grid
+     */
+    public boolean start(SearchState s, int startX, int startY, int goalX, int goalY, int radius) {
+        // Bounds check early to avoid expensive pathfinding when out of range
+        if (!grid.isInBounds(startX, startY) || !grid.isInBounds(goalX, goalY)) {
+            s.status = FAILED;
+            return false;
+        }
+
+        int start = grid.index(startX, startY);
+        int gen = s.begin(grid.size());
+        s.goal = grid.index(goalX, goalY);
+        s.goalX = goalX;
+        s.goalY = goalY;
+        s.radius = radius;
+        s.status = RUNNING;
+
+        s.seen[start] = gen;
+        s.gCost[start] = 0f;
+        s.parent[start] = -1;
+        s.useLandmarks = landmarks != null && landmarks.radius == radius;
+        s.open.add(start, estimate(s, start, startX, startY));
+        return true;
+    }
+
+    /**
+     * Expands at most maxExpansions nodes of a started search; the open and closed sets stay in the state,
+     * so the search can be resumed in a later frame.
+     * @return RUNNING, FOUND or FAILED
+     */
+    public int step(SearchState s, int maxExpansions) {
+        if (s.status != RUNNING) return s.status;
+
+        int width = grid.width, height = grid.height;
+        int goal = s.goal, goalX = s.goalX, goalY = s.goalY, radius = s.radius;
+        int gen = s.generation;
+        float[] gCost = s.gCost;
+        int[] parent = s.parent;
+        int[] seen = s.seen;
+        int[] closed = s.closed;
+        IntMinHeap open = s.open;
+        byte[] clearance = grid.clearance;
+        float[] multiplier = costs != null ? costs.multiplier : null;
+
+        for (int budget = maxExpansions; budget > 0; budget--) {
+            if (open.isEmpty()) return s.status = FAILED; // no path found
+
+            int current = open.poll();
+            s.expansions++;
+            if (current == goal) return s.status = FOUND;
+
+            closed[current] = gen;
+            int cx = current % width;
+            int cy = current / width;
+            float currentCost = gCost[current];
+
+            for (int dx = -1; dx <= 1; dx++) {
+                int nx = cx + dx;
+                if (nx < 0 || nx >= width) continue;
+                for (int dy = -1; dy <= 1; dy++) {
+                    if (dx == 0 && dy == 0) continue;
+                    int ny = cy + dy;
+                    if (ny < 0 || ny >= height) continue;
+
+                    int neighbor = ny * width + nx;
+                    if (closed[neighbor] == gen) continue;
+                    if (clearance[neighbor] <= radius) continue;
+
+                    float stepCost = dx != 0 && dy != 0 ? DIAGONAL_COST : 1f;
+                    if (multiplier != null) stepCost *= multiplier[neighbor];
+                    float newCost = currentCost + stepCost;
+                    if (seen[neighbor] != gen) {
+                        seen[neighbor] = gen;
+                        gCost[neighbor] = newCost;
+                        parent[neighbor] = current;
+                        open.add(neighbor, newCost + estimate(s, neighbor, nx, ny));
+                    } else if (newCost < gCost[neighbor]) {
+                        gCost[neighbor] = newCost;
+                        parent[neighbor] = current;
+                        open.update(neighbor, newCost + estimate(s, neighbor, nx, ny));
+                    }
+                }
+            }
+        }
+        return open.isEmpty() ? (s.status = FAILED) : RUNNING;
+    }
+
+    // ========================
+    // --- HELPER FUNCTIONS ---
+    // ========================
+
+    // search arrays of the calling thread, shared by the grid searches
+    static SearchState state() {
+        return STATE.get();
+    }
+
+    // number of nodes the last search on the calling thread expanded
+    public static int lastExpansionCount() {
+        return STATE.get().expansions;
+    }
+
+    // the landmark bound when the search may use it, never below the straight-line distance
+    private float estimate(SearchState s, int tile, int x, int y) {
+        float h = heuristic(x, y, s.goalX, s.goalY);
+        return s.useLandmarks ? Math.max(h, landmarks.estimate(tile, s.goal)) : h;
+    }
+
+    // Euclidean distance gives smooth diagonals
+    static float heuristic(int ax, int ay, int bx, int by) {
+        float dx = ax - bx;
+        float dy = ay - by;
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    // walks the parent chain from the goal and writes it back to front, no reverse needed
+    static int writePath(int[] parent, int goal, int[] pathOut) {
+        int length = 0;
+        for (int n = goal; n != -1; n = parent[n]) length++;
+        int i = length;
+        for (int n = goal; n != -1; n = parent[n]) pathOut[--i] = n;
+        return length;
+    }
+
+    /**
+     * Reusable arrays of one search. A tile's gCost/parent are only valid when seen[tile] matches
+     * the current generation, a tile is closed when closed[tile] matches it.
+     * Each thread has one for blocking searches, resumable searches bring their own.
+     */
+    public static class SearchState {
+        float[] gCost = new float[0];
+        int[] parent = new int[0];
+        int[] seen = new int[0];
+        int[] closed = new int[0];
+        byte[] direction = new byte[0]; // arrival direction, used by JPS+
+        final IntMinHeap open = new IntMinHeap(0);
+        int generation = 0;
+        int expansions = 0;
+
+        // the running search
+        int goal, goalX, goalY, radius;
+        boolean useLandmarks;
+        int status = FAILED;
+
+        // prepares the state for a search over size tiles and returns the new generation
+        int begin(int size) {
+            if (gCost.length < size) {
+                gCost = new float[size];
+                parent = new int[size];
+                seen = new int[size];
+                closed = new int[size];
+                direction = new byte[size];
+                open.ensureCapacity(size);
+                generation = 0;
+            }
+            open.clear();
+            expansions = 0;
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(seen, 0);
+                Arrays.fill(closed, 0);
+                generation = 1;
+            }
+            return generation;
+        }
+    }
+}
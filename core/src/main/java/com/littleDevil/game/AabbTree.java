@@ -0,0 +1,450 @@
+package com.littleDevil.game;
+
+import java.util.Arrays;
+
+/**
+ * Dynamic bounding volume tree of axis-aligned boxes in pixels: collision objects with their exact
+ * collision boxes, and moving entity boxes. Overlap queries, raycasts and swept boxes only descend into
+ * the branches whose bounds they touch, O(log n) for the small areas the entities ask about,
+ * whatever size the shapes have and without rounding them to tiles.
+ * Leaves keep the exact box for the tests and a fat box (MARGIN bigger, stretched along the last movement)
+ * in the tree, so an entity that moves a little stays in its leaf; the tree is kept balanced with rotations.
+ * Every box has category bits, the queries take a mask of the categories they want.
+ * Boxes overlap when they share area, touching borders do not count. Not thread safe,
+ * and boxes must not be inserted, moved or removed from inside a visitor.
+ */
+public class AabbTree<T> {
+
+    public interface Visitor<T> {
+        void visit(T item);
+    }
+
+    // result of raycast and sweep
+    public static class Hit<T> {
+        public T item;               // null without a hit
+        public float time;           // fraction of the ray / displacement before the hit, 1 without a hit
+        public int normalX, normalY; // face normal of the box that was hit, 0 when the ray started inside it
+    }
+
+    public static final float MARGIN = 2f;            // pixels the fat box sticks out on every side
+    public static final float MOVE_MULTIPLIER = 2f;   // fat box stretched by this many times the last displacement
+
+    private static final int NONE = -1;
+
+    private int root = NONE;
+    private float[] minX = new float[16], minY = new float[16], maxX = new float[16], maxY = new float[16]; // fat / node bounds
+    private float[] left = new float[16], bottom = new float[16], right = new float[16], top = new float[16]; // exact leaf boxes
+    private int[] parent = new int[16], child1 = new int[16], child2 = new int[16];
+    private int[] height = new int[16];  // 0 for leaves, -1 for free nodes
+    private int[] category = new int[16];
+    private Object[] items = new Object[16];
+    private int freeHead = NONE, used = 0, size = 0;
+
+    private int[] stack = new int[64];
+    private int entryAxis; // axis of the slab the last entry went through, 0 = x, 1 = y, -1 = started inside
+
+    /**
+     * Adds a box (pixels) with its category bits.
+     * @return handle for move and remove
+     */
+    public int insert(T item, float minX, float minY, float maxX, float maxY, int category) {
+        int leaf = allocate();
+        items[leaf] = item;
+        this.category[leaf] = category;
+        height[leaf] = 0;
+        setExact(leaf, minX, minY, maxX, maxY);
+        fatten(leaf, 0f, 0f);
+        insertLeaf(leaf);
+        size++;
+        return leaf;
+    }
+
+    /**
+     * Sets the box of an entry, call whenever it moved. Cheap while the box stays inside its fat box.
+     * @return whether the entry had to be reinserted
+     */
+    public boolean move(int handle, float minX, float minY, float maxX, float maxY) {
+        float moveX = minX - left[handle], moveY = minY - bottom[handle];
+        setExact(handle, minX, minY, maxX, maxY);
+        if (this.minX[handle] <= minX && this.minY[handle] <= minY && this.maxX[handle] >= maxX && this.maxY[handle] >= maxY) {
+            return false;
+        }
+        removeLeaf(handle);
+        fatten(handle, moveX * MOVE_MULTIPLIER, moveY * MOVE_MULTIPLIER);
+        insertLeaf(handle);
+        return true;
+    }
+
+    public void remove(int handle) {
+        if (handle < 0 || height[handle] != 0) return;
+        removeLeaf(handle);
+        items[handle] = null;
+        height[handle] = NONE;
+        parent[handle] = freeHead;
+        freeHead = handle;
+        size--;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // levels below the root, 0 for an empty tree or a single box
+    public int getHeight() {
+        return root == NONE ? 0 : height[root];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T getItem(int handle) {
+        return (T) items[handle];
+    }
+
+    // exact box of an entry: min x, min y, max x, max y written to out
+    public void getBox(int handle, float[] out) {
+        out[0] = left[handle];
+        out[1] = bottom[handle];
+        out[2] = right[handle];
+        out[3] = top[handle];
+    }
+
+    // ===============
+    // --- QUERIES ---
+    // ===============
+
+    /**
+     * Visits every entry of the mask's categories whose box shares area with the box.
+     */
+    @SuppressWarnings("unchecked")
+    public void queryOverlap(float minX, float minY, float maxX, float maxY, int mask, Visitor<T> visitor) {
+        int count = push(0, root);
+        while (count > 0) {
+            int node = stack[--count];
+            if (!overlapsFat(node, minX, minY, maxX, maxY)) continue;
+            if (height[node] == 0) {
+                if ((category[node] & mask) != 0 && overlapsExact(node, minX, minY, maxX, maxY)) visitor.visit((T) items[node]);
+            } else {
+                count = push(count, child1[node]);
+                count = push(count, child2[node]);
+            }
+        }
+    }
+
+    /**
+     * Whether any entry of the mask's categories shares area with the box, stops at the first one.
+     */
+    public boolean overlapsAny(float minX, float minY, float maxX, float maxY, int mask) {
+        int count = push(0, root);
+        while (count > 0) {
+            int node = stack[--count];
+            if (!overlapsFat(node, minX, minY, maxX, maxY)) continue;
+            if (height[node] == 0) {
+                if ((category[node] & mask) != 0 && overlapsExact(node, minX, minY, maxX, maxY)) return true;
+            } else {
+                count = push(count, child1[node]);
+                count = push(count, child2[node]);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * First entry of the mask's categories on the segment from (fromX, fromY) to (toX, toY).
+     * A segment starting inside a box hits it at time 0.
+     * @return whether something was hit
+     */
+    public boolean raycast(float fromX, float fromY, float toX, float toY, int mask, Hit<T> hit) {
+        return cast(fromX, fromY, toX - fromX, toY - fromY, 0f, 0f, mask, false, hit);
+    }
+
+    /**
+     * First entry of the mask's categories the box (pixels) touches when it moves by (dx, dy).
+     * Boxes it already overlaps are ignored, like TileSweep, so a stuck box can leave them.
+     * @return whether something was hit
+     */
+    public boolean sweep(float left, float bottom, float width, float height, float dx, float dy, int mask, Hit<T> hit) {
+        float halfWidth = width / 2f, halfHeight = height / 2f;
+        return cast(left + halfWidth, bottom + halfHeight, dx, dy, halfWidth, halfHeight, mask, true, hit);
+    }
+
+    // moves the point (originX, originY) by (dx, dy) against the boxes grown by the half extents
+    @SuppressWarnings("unchecked")
+    private boolean cast(float originX, float originY, float dx, float dy, float halfWidth, float halfHeight,
+                         int mask, boolean skipOverlapped, Hit<T> hit) {
+        hit.item = null;
+        hit.time = 1f;
+        hit.normalX = hit.normalY = 0;
+
+        int count = push(0, root);
+        while (count > 0) {
+            int node = stack[--count];
+            boolean leaf = height[node] == 0;
+            if (leaf && (category[node] & mask) == 0) continue;
+            float time = entryTime(minX[node] - halfWidth, minY[node] - halfHeight, maxX[node] + halfWidth, maxY[node] + halfHeight,
+                originX, originY, dx, dy);
+            if (time < 0f || time >= hit.time) continue;
+
+            if (!leaf) {
+                count = push(count, child1[node]);
+                count = push(count, child2[node]);
+                continue;
+            }
+            time = entryTime(left[node] - halfWidth, bottom[node] - halfHeight, right[node] + halfWidth, top[node] + halfHeight,
+                originX, originY, dx, dy);
+            if (time < 0f || time >= hit.time || (entryAxis < 0 && skipOverlapped)) continue;
+
+            hit.item = (T) items[node];
+            hit.time = time;
+            hit.normalX = entryAxis == 0 ? (dx > 0 ? -1 : 1) : 0;
+            hit.normalY = entryAxis == 1 ? (dy > 0 ? -1 : 1) : 0;
+            if (entryAxis < 0) return true; // nothing comes before the start
+        }
+        return hit.item != null;
+    }
+
+    /**
+     * Time in [0, 1] at which the moving point enters the box, -1 when it misses it.
+     * Sets entryAxis, -1 when the point starts inside.
+     */
+    private float entryTime(float minX, float minY, float maxX, float maxY, float originX, float originY, float dx, float dy) {
+        float enter = Float.NEGATIVE_INFINITY, exit = Float.POSITIVE_INFINITY;
+        entryAxis = -1;
+
+        if (dx == 0f) {
+            if (originX <= minX || originX >= maxX) return -1f;
+        } else {
+            float near = ((dx > 0 ? minX : maxX) - originX) / dx;
+            float far = ((dx > 0 ? maxX : minX) - originX) / dx;
+            enter = near;
+            exit = far;
+            entryAxis = 0;
+        }
+        if (dy == 0f) {
+            if (originY <= minY || originY >= maxY) return -1f;
+        } else {
+            float near = ((dy > 0 ? minY : maxY) - originY) / dy;
+            float far = ((dy > 0 ? maxY : minY) - originY) / dy;
+            if (near > enter) {
+                enter = near;
+                entryAxis = 1;
+            }
+            exit = Math.min(exit, far);
+        }
+
+        if (enter >= exit || exit <= 0f || enter > 1f) return -1f;
+        if (enter < 0f) {
+            entryAxis = -1;
+            return 0f;
+        }
+        return enter;
+    }
+
+    // ========================
+    // --- TREE MAINTENANCE ---
+    // ========================
+
+    private void insertLeaf(int leaf) {
+        if (root == NONE) {
+            root = leaf;
+            parent[leaf] = NONE;
+            return;
+        }
+
+        // walk down to the sibling that grows the total perimeter the least
+        float leafMinX = minX[leaf], leafMinY = minY[leaf], leafMaxX = maxX[leaf], leafMaxY = maxY[leaf];
+        int index = root;
+        while (height[index] > 0) {
+            int first = child1[index], second = child2[index];
+            float perimeter = perimeter(index);
+            float combined = unionPerimeter(index, leafMinX, leafMinY, leafMaxX, leafMaxY);
+            float cost = 2f * combined;                     // new parent for this node and the leaf
+            float inheritance = 2f * (combined - perimeter); // growth pushed to every ancestor below this one
+
+            float costFirst = descendCost(first, leafMinX, leafMinY, leafMaxX, leafMaxY) + inheritance;
+            float costSecond = descendCost(second, leafMinX, leafMinY, leafMaxX, leafMaxY) + inheritance;
+            if (cost < costFirst && cost < costSecond) break;
+            index = costFirst < costSecond ? first : second;
+        }
+
+        int sibling = index;
+        int oldParent = parent[sibling];
+        int newParent = allocate();
+        parent[newParent] = oldParent;
+        items[newParent] = null;
+        height[newParent] = height[sibling] + 1;
+        child1[newParent] = sibling;
+        child2[newParent] = leaf;
+        parent[sibling] = newParent;
+        parent[leaf] = newParent;
+        if (oldParent == NONE) root = newParent;
+        else if (child1[oldParent] == sibling) child1[oldParent] = newParent;
+        else child2[oldParent] = newParent;
+
+        refit(newParent);
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NONE;
+            return;
+        }
+        int oldParent = parent[leaf];
+        int grandParent = parent[oldParent];
+        int sibling = child1[oldParent] == leaf ? child2[oldParent] : child1[oldParent];
+
+        if (grandParent == NONE) {
+            root = sibling;
+            parent[sibling] = NONE;
+        } else {
+            if (child1[grandParent] == oldParent) child1[grandParent] = sibling;
+            else child2[grandParent] = sibling;
+            parent[sibling] = grandParent;
+            refit(grandParent);
+        }
+        release(oldParent);
+    }
+
+    // rebalances and recomputes the bounds from the node up to the root
+    private void refit(int index) {
+        while (index != NONE) {
+            index = balance(index);
+            int first = child1[index], second = child2[index];
+            height[index] = 1 + Math.max(height[first], height[second]);
+            minX[index] = Math.min(minX[first], minX[second]);
+            minY[index] = Math.min(minY[first], minY[second]);
+            maxX[index] = Math.max(maxX[first], maxX[second]);
+            maxY[index] = Math.max(maxY[first], maxY[second]);
+            index = parent[index];
+        }
+    }
+
+    /**
+     * Rotates the taller child up when the two subtrees of the node differ by more than one level.
+     * @return the node now at the node's place
+     */
+    private int balance(int a) {
+        if (height[a] < 2) return a;
+        int b = child1[a], c = child2[a];
+        int difference = height[c] - height[b];
+        if (difference > 1) return rotate(a, c, b, true);
+        if (difference < -1) return rotate(a, b, c, false);
+        return a;
+    }
+
+    // lifts the tall child up, a takes the tall child's shorter grandchild
+    private int rotate(int a, int tall, int other, boolean tallIsSecond) {
+        int f = child1[tall], g = child2[tall];
+
+        child1[tall] = a;
+        parent[tall] = parent[a];
+        parent[a] = tall;
+        if (parent[tall] == NONE) root = tall;
+        else if (child1[parent[tall]] == a) child1[parent[tall]] = tall;
+        else child2[parent[tall]] = tall;
+
+        int keep = height[f] > height[g] ? f : g;
+        int give = keep == f ? g : f;
+        child2[tall] = keep;
+        if (tallIsSecond) child2[a] = give;
+        else child1[a] = give;
+        parent[give] = a;
+
+        setUnion(a, other, give);
+        setUnion(tall, a, keep);
+        height[a] = 1 + Math.max(height[other], height[give]);
+        height[tall] = 1 + Math.max(height[a], height[keep]);
+        return tall;
+    }
+
+    // ========================
+    // --- HELPER FUNCTIONS ---
+    // ========================
+
+    private void setExact(int leaf, float minX, float minY, float maxX, float maxY) {
+        left[leaf] = minX;
+        bottom[leaf] = minY;
+        right[leaf] = maxX;
+        top[leaf] = maxY;
+    }
+
+    // fat box around the exact box, stretched toward where it is heading
+    private void fatten(int leaf, float aheadX, float aheadY) {
+        minX[leaf] = left[leaf] - MARGIN + Math.min(0f, aheadX);
+        minY[leaf] = bottom[leaf] - MARGIN + Math.min(0f, aheadY);
+        maxX[leaf] = right[leaf] + MARGIN + Math.max(0f, aheadX);
+        maxY[leaf] = top[leaf] + MARGIN + Math.max(0f, aheadY);
+    }
+
+    private void setUnion(int node, int a, int b) {
+        minX[node] = Math.min(minX[a], minX[b]);
+        minY[node] = Math.min(minY[a], minY[b]);
+        maxX[node] = Math.max(maxX[a], maxX[b]);
+        maxY[node] = Math.max(maxY[a], maxY[b]);
+    }
+
+    private float perimeter(int node) {
+        return 2f * (maxX[node] - minX[node] + maxY[node] - minY[node]);
+    }
+
+    private float unionPerimeter(int node, float boxMinX, float boxMinY, float boxMaxX, float boxMaxY) {
+        return 2f * (Math.max(maxX[node], boxMaxX) - Math.min(minX[node], boxMinX)
+            + Math.max(maxY[node], boxMaxY) - Math.min(minY[node], boxMinY));
+    }
+
+    // perimeter added by putting the box below the node
+    private float descendCost(int node, float boxMinX, float boxMinY, float boxMaxX, float boxMaxY) {
+        float combined = unionPerimeter(node, boxMinX, boxMinY, boxMaxX, boxMaxY);
+        return height[node] == 0 ? combined : combined - perimeter(node);
+    }
+
+    private boolean overlapsFat(int node, float boxMinX, float boxMinY, float boxMaxX, float boxMaxY) {
+        return minX[node] < boxMaxX && maxX[node] > boxMinX && minY[node] < boxMaxY && maxY[node] > boxMinY;
+    }
+
+    private boolean overlapsExact(int leaf, float boxMinX, float boxMinY, float boxMaxX, float boxMaxY) {
+        return left[leaf] < boxMaxX && right[leaf] > boxMinX && bottom[leaf] < boxMaxY && top[leaf] > boxMinY;
+    }
+
+    private int push(int count, int node) {
+        if (node == NONE) return count;
+        if (count == stack.length) stack = Arrays.copyOf(stack, count * 2);
+        stack[count] = node;
+        return count + 1;
+    }
+
+    private int allocate() {
+        int node;
+        if (freeHead != NONE) {
+            node = freeHead;
+            freeHead = parent[node];
+        } else {
+            if (used == items.length) grow();
+            node = used++;
+        }
+        parent[node] = child1[node] = child2[node] = NONE;
+        return node;
+    }
+
+    private void release(int node) {
+        height[node] = NONE;
+        parent[node] = freeHead;
+        freeHead = node;
+    }
+
+    private void grow() {
+        int capacity = items.length * 2;
+        minX = Arrays.copyOf(minX, capacity);
+        minY = Arrays.copyOf(minY, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        maxY = Arrays.copyOf(maxY, capacity);
+        left = Arrays.copyOf(left, capacity);
+        bottom = Arrays.copyOf(bottom, capacity);
+        right = Arrays.copyOf(right, capacity);
+        top = Arrays.copyOf(top, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        child1 = Arrays.copyOf(child1, capacity);
+        child2 = Arrays.copyOf(child2, capacity);
+        height = Arrays.copyOf(height, capacity);
+        category = Arrays.copyOf(category, capacity);
+        items = Arrays.copyOf(items, capacity);
+    }
+}
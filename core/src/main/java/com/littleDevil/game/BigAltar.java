@@ -4,7 +4,7 @@ import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 
-public class BigAltar {
+public class BigAltar implements TriggerSystem.Listener {
 
     private Texture spriteSheet;
     private TextureRegion[] frames;
@@ -17,6 +17,7 @@ public class BigAltar {
     private int totalFrames = 10;
 
     private boolean reversing = false;
+    private boolean playerInside = false; // set by the trigger volume over the interaction box
 
     public CollisionObject interactionBox = new CollisionObject(
         "BigAltarInteractionBox",
@@ -54,7 +55,7 @@ public class BigAltar {
         animationTimer = 0f;
 
         // --- Handle entering or staying inside ---
-        if (player.isOnAltar(gameWorld)) {
+        if (playerInside) {
             if (!reversing) {
                 frameIndex++;
                 if (frameIndex >= 8) {
@@ -84,6 +85,16 @@ public class BigAltar {
         currentFrame = frames[frameIndex];
     }
 
+    @Override
+    public void onEnter(TriggerSystem.Volume volume, Object entity) {
+        playerInside = true;
+    }
+
+    @Override
+    public void onExit(TriggerSystem.Volume volume, Object entity) {
+        playerInside = false;
+    }
+
     public void render(SpriteBatch batch) {
         batch.draw(currentFrame, x, y);
     }
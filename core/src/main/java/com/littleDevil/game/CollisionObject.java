@@ -11,6 +11,7 @@ public class CollisionObject {
     public int offsetX, offsetY;  // offset of collision box from top-left corner
     public Texture texture;       // optional texture for visualization
     public int type;              // 1 = world border, 2 = obstacle, 3 = powerup, etc.
+    public int colliderHandle = -1; // entry in GameWorld.colliders while the object is in the world
 
     /**
      * Constructor without texture
@@ -38,18 +39,30 @@ public class CollisionObject {
     }
 
     /**
-     * Marks this object's collision area on the grid
+     * Adds this object's type flag to the tiles under its collision area, keeping the flags already there
      */
-    public void markOnGrid(int[][] grid, int tileSize) {
-        int startX = (posX + offsetX) / tileSize;
-        int startY = (posY + offsetY) / tileSize;
-        int endX = (posX + offsetX + collisionWidth) / tileSize;
-        int endY = (posY + offsetY + collisionHeight) / tileSize;
-
-        for (int y = startY; y <= endY && y < grid.length; y++) {
-            for (int x = startX; x <= endX && x < grid[0].length; x++) {
-                grid[y][x] = type;
-            }
-        }
+    public void markOnTiles(TileLayer tiles, int tileSize) {
+        tiles.mark(getTileMinX(tileSize), getTileMinY(tileSize), getTileMaxX(tileSize), getTileMaxY(tileSize), TileLayer.flagOf(type));
     }
+
+    /**
+     * Same, but only on the tiles inside the rectangle (inclusive tile coordinates)
+     */
+    public void markOnTiles(TileLayer tiles, int tileSize, int minX, int minY, int maxX, int maxY) {
+        int startX = Math.max(minX, getTileMinX(tileSize)), endX = Math.min(maxX, getTileMaxX(tileSize));
+        int startY = Math.max(minY, getTileMinY(tileSize)), endY = Math.min(maxY, getTileMaxY(tileSize));
+        if (startX <= endX && startY <= endY) tiles.mark(startX, startY, endX, endY, TileLayer.flagOf(type));
+    }
+
+    // exact collision area in pixels
+    public int getLeft() { return posX + offsetX; }
+    public int getBottom() { return posY + offsetY; }
+    public int getRight() { return posX + offsetX + collisionWidth; }
+    public int getTop() { return posY + offsetY + collisionHeight; }
+
+    // tile rectangle (inclusive) under the collision area
+    public int getTileMinX(int tileSize) { return (posX + offsetX) / tileSize; }
+    public int getTileMinY(int tileSize) { return (posY + offsetY) / tileSize; }
+    public int getTileMaxX(int tileSize) { return (posX + offsetX + collisionWidth) / tileSize; }
+    public int getTileMaxY(int tileSize) { return (posY + offsetY + collisionHeight) / tileSize; }
 }
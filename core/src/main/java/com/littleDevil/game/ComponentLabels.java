@@ -0,0 +1,148 @@
+package com.littleDevil.game;
+
+import java.util.Arrays;
+
+/**
+ * Connected components of the tiles an agent of one radius can stand on (8 neighbors, like AStarEngine).
+ * Two tiles with different labels have no path between them, so a request toward a goal the enemy can
+ * never reach is answered without flooding the whole grid, and is moved to the closest tile it can reach.
+ * Labels are rebuilt on the next query after tiles changed.
+ */
+public class ComponentLabels implements TileChangeListener {
+
+    public static final int NO_COMPONENT = 0;
+    public static final int MAX_REDIRECT_DISTANCE = 32; // tiles searched around an unreachable goal
+
+    public NavGrid grid;
+    public final int radius;
+
+    private final int[] labels;
+    private final int[] queue;
+    private final int[] startLabels = new int[9];
+    private int componentCount = 0;
+    private boolean dirty = true;
+
+    public ComponentLabels(NavGrid grid, int radius) {
+        this.grid = grid;
+        this.radius = radius;
+        this.labels = new int[grid.size()];
+        this.queue = new int[grid.size()];
+    }
+
+    // tiles in the rectangle changed, labels are rebuilt for the new grid before the next query
+    @Override
+    public void onTilesChanged(NavGrid grid, int minX, int minY, int maxX, int maxY) {
+        this.grid = grid;
+        dirty = true;
+    }
+
+    public int labelOf(int tile) {
+        if (dirty) relabel();
+        return labels[tile];
+    }
+
+    public int getComponentCount() {
+        if (dirty) relabel();
+        return componentCount;
+    }
+
+    /**
+     * Goal tile a search from start should use: the goal itself when it is reachable, otherwise the closest
+     * reachable tile within MAX_REDIRECT_DISTANCE of it.
+     * @return tile index, -1 when nothing near the goal can be reached
+     */
+    public int findReachableGoal(int startX, int startY, int goalX, int goalY) {
+        if (!grid.isInBounds(startX, startY) || !grid.isInBounds(goalX, goalY)) return -1;
+        if (dirty) relabel();
+
+        int goal = grid.index(goalX, goalY);
+        if (startX == goalX && startY == goalY) return goal;
+
+        int startCount = collectStartLabels(startX, startY);
+        if (startCount == 0) return -1;
+        if (contains(startCount, labels[goal])) return goal;
+
+        // rings of growing chebyshev distance, until no closer tile can follow
+        int best = -1;
+        float bestDistance = Float.MAX_VALUE;
+        for (int ring = 1; ring <= MAX_REDIRECT_DISTANCE && ring < bestDistance; ring++) {
+            for (int dy = -ring; dy <= ring; dy++) {
+                int step = (dy == -ring || dy == ring) ? 1 : 2 * ring; // only the ring's border
+                for (int dx = -ring; dx <= ring; dx += step) {
+                    int x = goalX + dx, y = goalY + dy;
+                    if (!grid.isInBounds(x, y)) continue;
+                    int tile = grid.index(x, y);
+                    if (!contains(startCount, labels[tile])) continue;
+
+                    float distance = (float) Math.sqrt(dx * dx + dy * dy);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = tile;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    // components the start can step into: its own, or those of its neighbors when it stands in the padding
+    private int collectStartLabels(int startX, int startY) {
+        int start = grid.index(startX, startY);
+        if (labels[start] != NO_COMPONENT) {
+            startLabels[0] = labels[start];
+            return 1;
+        }
+
+        int count = 0;
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                int x = startX + dx, y = startY + dy;
+                if (!grid.isInBounds(x, y)) continue;
+                int label = labels[grid.index(x, y)];
+                if (label != NO_COMPONENT && !contains(count, label)) startLabels[count++] = label;
+            }
+        }
+        return count;
+    }
+
+    private boolean contains(int count, int label) {
+        if (label == NO_COMPONENT) return false;
+        for (int i = 0; i < count; i++) {
+            if (startLabels[i] == label) return true;
+        }
+        return false;
+    }
+
+    // flood fills every walkable tile that has no label yet
+    private void relabel() {
+        int width = grid.width, height = grid.height;
+        Arrays.fill(labels, NO_COMPONENT);
+        componentCount = 0;
+
+        for (int seed = 0; seed < labels.length; seed++) {
+            if (labels[seed] != NO_COMPONENT || !grid.fits(seed, radius)) continue;
+
+            int label = ++componentCount;
+            int head = 0, tail = 0;
+            labels[seed] = label;
+            queue[tail++] = seed;
+            while (head < tail) {
+                int current = queue[head++];
+                int cx = current % width, cy = current / width;
+                for (int dy = -1; dy <= 1; dy++) {
+                    int ny = cy + dy;
+                    if (ny < 0 || ny >= height) continue;
+                    for (int dx = -1; dx <= 1; dx++) {
+                        int nx = cx + dx;
+                        if (nx < 0 || nx >= width) continue;
+                        int neighbor = ny * width + nx;
+                        if (labels[neighbor] != NO_COMPONENT || !grid.fits(neighbor, radius)) continue;
+                        labels[neighbor] = label;
+                        queue[tail++] = neighbor;
+                    }
+                }
+            }
+        }
+        dirty = false;
+    }
+}
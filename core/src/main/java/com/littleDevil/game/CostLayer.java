@@ -0,0 +1,154 @@
+package com.littleDevil.game;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Per-tile traversal cost multiplier used by AStarEngine on top of the 1 / √2 step costs.
+ * Made of a terrain part (stairs slow the player to 2/3 speed, so they cost 1.5) and a crowd part:
+ * every enemy adds OCCUPANCY_COST to the tiles around it, so paths of other enemies spread out instead of
+ * piling into the same corridor. Occupancy is updated incrementally, only tiles around enemies that moved
+ * to another tile are touched. Costs are never below 1, so the straight-line and landmark heuristics stay valid.
+ * Path workers read the multipliers while the render thread updates them; a stale value only steers a path a little.
+ * When obstacles change the layer moves to the new grid, keeping the crowd part, and only the changed terrain is redone.
+ */
+public class CostLayer {
+
+    public static final float STAIRS_COST = 1.5f;
+    public static final float OCCUPANCY_COST = 1f;  // added per enemy on a tile
+    public static final int OCCUPANCY_RADIUS = 2;   // tiles around an enemy's tile it counts as occupying
+
+    public NavGrid grid;
+    public final float[] multiplier; // read by the searches
+    public int version = 0; // increased whenever a multiplier changes, keys cached cost-weighted paths
+
+    private final float[] terrain;
+    private final short[] occupancy;
+    private int[] occupiedTiles = new int[16]; // tile per enemy list slot at the last update, -1 for none
+    private int occupiedCount = 0;
+
+    public CostLayer(NavGrid grid) {
+        this.grid = grid;
+        this.multiplier = new float[grid.size()];
+        this.terrain = new float[grid.size()];
+        this.occupancy = new short[grid.size()];
+        Arrays.fill(terrain, 1f);
+        Arrays.fill(multiplier, 1f);
+    }
+
+    /**
+     * Builds the terrain part from the tile types of the world.
+     */
+    public static CostLayer fromWorld(GameWorld world) {
+        CostLayer layer = new CostLayer(world.navGrid);
+        TileLayer tiles = world.tiles;
+        for (int i = tiles.nextTile(TileLayer.STAIRS, 0); i >= 0; i = tiles.nextTile(TileLayer.STAIRS, i + 1)) {
+            layer.setTerrainCost(i % tiles.width, i / tiles.width, STAIRS_COST);
+        }
+        return layer;
+    }
+
+    // switches to grid and takes the terrain of the rectangle (inclusive) from the tiles again
+    public void onTilesChanged(NavGrid grid, TileLayer tiles, int minX, int minY, int maxX, int maxY) {
+        this.grid = grid;
+        for (int y = Math.max(0, minY); y <= Math.min(grid.height - 1, maxY); y++) {
+            for (int x = Math.max(0, minX); x <= Math.min(grid.width - 1, maxX); x++) {
+                setTerrainCost(x, y, tiles.has(x, y, TileLayer.STAIRS) ? STAIRS_COST : 1f);
+            }
+        }
+    }
+
+    public void setTerrainCost(int x, int y, float cost) {
+        int tile = grid.index(x, y);
+        terrain[tile] = Math.max(1f, cost);
+        refresh(tile);
+    }
+
+    /**
+     * Moves the crowd costs to the current enemy tiles. Call once per frame after the enemies moved.
+     */
+    public void updateOccupancy(List<Enemy> enemies, int tileSize) {
+        int count = enemies.size();
+        if (occupiedTiles.length < count) occupiedTiles = Arrays.copyOf(occupiedTiles, Math.max(count, occupiedTiles.length * 2));
+
+        for (int i = 0; i < Math.max(count, occupiedCount); i++) {
+            int oldTile = i < occupiedCount ? occupiedTiles[i] : -1;
+            int newTile = i < count ? tileOf(enemies.get(i), tileSize) : -1;
+            if (oldTile == newTile) continue;
+
+            if (oldTile >= 0) addOccupancy(oldTile, -1);
+            if (newTile >= 0) addOccupancy(newTile, 1);
+            if (i < count) occupiedTiles[i] = newTile;
+        }
+        occupiedCount = count;
+    }
+
+    public int getOccupancy(int tile) {
+        return occupancy[tile];
+    }
+
+    /**
+     * Mean multiplier of the tiles a straight line between two tile centers enters, the same tiles
+     * NavGrid.hasLineOfSight walks, so the line costs its length times this, like an A* path of the same steps.
+     * With withoutOwnCrowd set the crowd cost an agent standing on (x0, y0) adds around itself is left out.
+     */
+    public float meanMultiplier(int x0, int y0, int x1, int y1, boolean withoutOwnCrowd) {
+        int nx = Math.abs(x1 - x0), ny = Math.abs(y1 - y0);
+        if (nx == 0 && ny == 0) return 1f;
+        int stepX = x1 > x0 ? 1 : -1, stepY = y1 > y0 ? 1 : -1;
+        int x = x0, y = y0;
+        float sum = 0f;
+        int entered = 0;
+
+        for (int ix = 0, iy = 0; ix < nx || iy < ny; ) {
+            int decision = (1 + 2 * ix) * ny - (1 + 2 * iy) * nx;
+            if (decision == 0) {
+                x += stepX;
+                y += stepY;
+                ix++;
+                iy++;
+            } else if (decision < 0) {
+                x += stepX;
+                ix++;
+            } else {
+                y += stepY;
+                iy++;
+            }
+            int tile = y * grid.width + x;
+            float cost = multiplier[tile];
+            if (withoutOwnCrowd && occupancy[tile] > 0
+                    && Math.max(Math.abs(x - x0), Math.abs(y - y0)) <= OCCUPANCY_RADIUS) {
+                cost -= OCCUPANCY_COST;
+            }
+            sum += cost;
+            entered++;
+        }
+        return sum / entered;
+    }
+
+    // tile under the enemy's collision box center, -1 when dead or outside the grid
+    private int tileOf(Enemy enemy, int tileSize) {
+        if (!enemy.isAlive) return -1;
+        int x = (int) ((enemy.x + enemy.collisionOffsetX + enemy.collisionWidth / 2f) / tileSize);
+        int y = (int) ((enemy.y + enemy.collisionOffsetY + enemy.collisionHeight / 2f) / tileSize);
+        return grid.isInBounds(x, y) ? grid.index(x, y) : -1;
+    }
+
+    private void addOccupancy(int center, int amount) {
+        int cx = grid.xOf(center), cy = grid.yOf(center);
+        for (int y = Math.max(0, cy - OCCUPANCY_RADIUS); y <= Math.min(grid.height - 1, cy + OCCUPANCY_RADIUS); y++) {
+            for (int x = Math.max(0, cx - OCCUPANCY_RADIUS); x <= Math.min(grid.width - 1, cx + OCCUPANCY_RADIUS); x++) {
+                int tile = y * grid.width + x;
+                occupancy[tile] += amount;
+                refresh(tile);
+            }
+        }
+    }
+
+    private void refresh(int tile) {
+        float value = terrain[tile] + occupancy[tile] * OCCUPANCY_COST;
+        if (multiplier[tile] == value) return;
+        multiplier[tile] = value;
+        version++;
+    }
+}
@@ -6,8 +6,6 @@ import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import java.util.ArrayList;
-import java.util.List;
 
 public abstract class Enemy {
 
@@ -31,6 +29,8 @@ public abstract class Enemy {
     protected final float hitFlashDuration = 0.1f;
     protected boolean hitThisAttack = false;
 
+    protected final TileSweep sweep = new TileSweep(); // collision result of the last move
+
     // Knockback
     protected float knockbackX = 0f, knockbackY = 0f;
     protected float knockbackDecay = 100f;
@@ -40,9 +40,15 @@ public abstract class Enemy {
 
     // Pathfinding
     public Pathfinder pathfinder;
-    public List<Node> currentPath = new ArrayList<>();
-    public int currentTargetIndex = 0;
-    public float pathUpdateOffset, pathTimer = 0f;
+    public final PathCursor path = new PathCursor(); // current path and the tile walked to next
+    public float pathTimer = 0f; // seconds since the last repath
+    public boolean pathPending = false; // a request is being solved by the path service
+
+    // Separation
+    public int spatialHandle = -1; // slot in GameWorld.enemyIndex
+    public int colliderHandle = -1; // collision box in GameWorld.colliders
+    public int triggerHandle = -1;  // tracking entry in GameWorld.triggers
+    private final Separation separation = new Separation();
 
     public Enemy(float x, float y, String spriteSheetPath, GameWorld gameWorld) {
         this.x = x;
@@ -52,7 +58,6 @@ public abstract class Enemy {
         spriteSheet = new Texture(spriteSheetPath);
         currentFrame = new TextureRegion(spriteSheet, 0, 0, 32, 32);
         hitSound = Gdx.audio.newSound(Gdx.files.internal("Sounds/hitSound.mp3"));
-        pathUpdateOffset = (float) Math.random() * 2f;
     }
 
     public void update(float delta, Player player, GameWorld gameWorld, GameScreen gameScreen) {
@@ -65,94 +70,117 @@ public abstract class Enemy {
         handleAttack(player, gameScreen);
     }
 
-    // Updates the path for enemies or reduces time until its updated
-    public void updatePathsForEnemy(float delta, Player player, GameWorld gameWorld, float PATH_UPDATE_INTERVAL) {
-
-        float playerCenterX = player.x + player.collisionOffsetX + player.collisionWidth / 2f;
-        float playerCenterY = player.y + player.collisionOffsetY + player.collisionHeight / 2f;
-
-        pathTimer += delta;
-        boolean timeToUpdate = pathTimer >= PATH_UPDATE_INTERVAL + pathUpdateOffset;
-        boolean pathEmpty = (currentPath == null || currentPath.isEmpty());
-        boolean pathEnded = (!pathEmpty && currentTargetIndex >= currentPath.size());
-
-        // Update when timer expires, or path is empty/finished
-        if (!timeToUpdate && !pathEmpty && !pathEnded) return;
+    // true when the enemy has no path left to follow
+    public boolean needsPath() {
+        return !path.hasTarget();
+    }
 
+    /**
+     * Looks for a new path to the player, called by the RepathScheduler when it is this enemy's turn.
+     * @return true when a search was run or queued, false when the cache or line of sight answered
+     */
+    public boolean repath(Player player, GameWorld gameWorld) {
         pathTimer = 0f;
 
+        float playerCenterX = player.x + player.collisionOffsetX + player.collisionWidth / 2f;
+        float playerCenterY = player.y + player.collisionOffsetY + player.collisionHeight / 2f;
         float enemyCenterX = x + collisionOffsetX + collisionWidth / 2f;
         float enemyCenterY = y + collisionOffsetY + collisionHeight / 2f;
 
-        float dx = enemyCenterX - playerCenterX;
-        float dy = enemyCenterY - playerCenterY;
-        float dist = (float) Math.sqrt(dx * dx + dy * dy);
-
-        float distanceFactor = Math.min(dist / 300f, 1f);
-        pathUpdateOffset = 0.2f + distanceFactor * (float) Math.random() * 2f;
         int startX = (int) (enemyCenterX / gameWorld.tileSize);
         int startY = (int) (enemyCenterY / gameWorld.tileSize);
         int targetX = (int) (playerCenterX / gameWorld.tileSize);
         int targetY = (int) (playerCenterY / gameWorld.tileSize);
-
-        Node oldNextNode = null;
-        if (currentPath != null && !currentPath.isEmpty()
-            && currentTargetIndex < currentPath.size()) {
-            oldNextNode = currentPath.get(currentTargetIndex);
+        int radius = getPathRadius(gameWorld.tileSize);
+
+        // goals the enemy can never reach are moved to the closest tile it can, without a search
+        ComponentLabels components = gameWorld.components;
+        if (components != null && components.grid == gameWorld.navGrid && components.radius == radius) {
+            int goal = components.findReachableGoal(startX, startY, targetX, targetY);
+            if (goal < 0) {
+                applyPath(PackedPath.EMPTY, gameWorld);
+                return false;
+            }
+            targetX = gameWorld.navGrid.xOf(goal);
+            targetY = gameWorld.navGrid.yOf(goal);
         }
 
-        currentPath = pathfinder.findPath(startX, startY, targetX, targetY);
-
-        if (currentPath != null && !currentPath.isEmpty()) {
-            currentTargetIndex = getClosestIndex(oldNextNode, gameWorld);
-        } else {
-            currentTargetIndex = 0;
+        // nothing in between, walk straight at the player without searching;
+        // with traversal costs only over plain ground, anything costlier could have a cheaper way around
+        boolean weighsCosts = pathfinder.weighsCosts(gameWorld.pathfinderMode);
+        if (gameWorld.smoothPaths && gameWorld.navGrid.hasLineOfSight(startX, startY, targetX, targetY, radius)
+                && (!weighsCosts || gameWorld.costLayer.meanMultiplier(startX, startY, targetX, targetY, true) <= 1f)) {
+            applyPath(PackedPath.of(gameWorld.navGrid.index(targetX, targetY), gameWorld.navGrid.width), gameWorld);
+            return false;
         }
-    }
 
+        // solve off the render thread when the world has a path service, keep the old path meanwhile
+        if (gameWorld.pathService != null && gameWorld.pathService.supports(gameWorld.pathfinderMode)) {
+            PathCache cache = gameWorld.pathCache;
+            PackedPath cached = cache == null ? null
+                : cache.get(gameWorld.pathfinderMode, gameWorld.gridVersion,
+                    PathCache.costVersionOf(weighsCosts ? gameWorld.costLayer : null), startX, startY, targetX, targetY, radius);
+            if (cached != null) {
+                applyPath(cached, gameWorld);
+                return false;
+            }
+            gameWorld.pathService.submit(this, gameWorld, startX, startY, targetX, targetY, radius);
+            return true;
+        }
 
+        applyPath(pathfinder.findPath(startX, startY, targetX, targetY, radius), gameWorld);
+        return !pathfinder.lastFromCache;
+    }
 
-    // gets the second-closest node so the player doesn't stop
-    private int getClosestIndex(Node oldNextNode, GameWorld gameWorld) {
-        int closestIndex = 0;
-        float minDist = Float.MAX_VALUE;
+    // switches to a new path and continues from the tile closest to where the old one was heading
+    public void applyPath(PackedPath newPath, GameWorld gameWorld) {
+        path.follow(newPath, x / gameWorld.tileSize, y / gameWorld.tileSize);
+    }
 
-        for (int i = 0; i < currentPath.size(); i++) {
-            Node n = currentPath.get(i);
-            float dx, dy;
-            if (oldNextNode != null) {
-                dx = n.x - oldNextNode.x;
-                dy = n.y - oldNextNode.y;
-            } else {
-                dx = n.x - x / gameWorld.tileSize;
-                dy = n.y - y / gameWorld.tileSize;
-            }
-            float d = dx*dx + dy*dy;
-            if (d < minDist) {
-                minDist = d;
-                closestIndex = i;
+    /**
+     * Obstacles changed in the rectangle (inclusive tiles): the incremental planner repairs its tree, and the enemy
+     * repaths soon when the rest of its path runs within its clearance of the rectangle.
+     */
+    public void onTilesChanged(GameWorld gameWorld, int minX, int minY, int maxX, int maxY) {
+        pathfinder.onTilesChanged(gameWorld.navGrid, minX, minY, maxX, maxY);
+
+        PackedPath current = path.getPath();
+        int margin = getPathRadius(gameWorld.tileSize) + 1;
+        for (int i = Math.max(0, path.getIndex() - 1); i < current.length(); i++) {
+            // smoothed paths only keep their corners, test the box of every segment
+            int next = Math.min(i + 1, current.length() - 1);
+            int fromX = Math.min(current.xAt(i), current.xAt(next)), toX = Math.max(current.xAt(i), current.xAt(next));
+            int fromY = Math.min(current.yAt(i), current.yAt(next)), toY = Math.max(current.yAt(i), current.yAt(next));
+            if (toX >= minX - margin && fromX <= maxX + margin && toY >= minY - margin && fromY <= maxY + margin) {
+                pathTimer = Math.max(pathTimer, RepathScheduler.MAX_INTERVAL);
+                return;
             }
         }
-        return closestIndex;
     }
 
-    protected void applyKnockback(float delta, GameWorld world) {
-        float nextX = x + knockbackX * delta;
-        float nextY = y + knockbackY * delta;
+    // clearance (in tiles) the collision box needs around its center tile when pathing
+    public int getPathRadius(int tileSize) {
+        int halfExtent = Math.max(collisionWidth, collisionHeight) / 2;
+        return Math.max(Pathfinder.COLLISION_PADDING, (halfExtent + tileSize - 1) / tileSize);
+    }
 
-        if (!checkCollision(nextX, y, world)) x = nextX; else knockbackX = 0;
-        if (!checkCollision(x, nextY, world)) y = nextY; else knockbackY = 0;
+    protected void applyKnockback(float delta, GameWorld world) {
+        if (knockbackX != 0 || knockbackY != 0) {
+            sweepBox(knockbackX * delta, knockbackY * delta, world);
+            if (sweep.hitX) knockbackX = 0;
+            if (sweep.hitY) knockbackY = 0;
+        }
 
         knockbackX = approachZero(knockbackX, knockbackDecay * delta);
         knockbackY = approachZero(knockbackY, knockbackDecay * delta);
     }
 
     protected void followPath(GameWorld world, float delta) {
-        if (currentPath == null || currentPath.isEmpty() || currentTargetIndex >= currentPath.size()) return;
+        if (world.useFlowField && followFlowField(world, delta)) return;
+        if (!path.hasTarget()) return;
 
-        Node target = currentPath.get(currentTargetIndex);
-        float targetX = target.x * world.tileSize + world.tileSize / 2f;
-        float targetY = target.y * world.tileSize + world.tileSize / 2f;
+        float targetX = path.targetX() * world.tileSize + world.tileSize / 2f;
+        float targetY = path.targetY() * world.tileSize + world.tileSize / 2f;
 
         float dx = targetX - (x + collisionOffsetX + collisionWidth / 2f);
         float dy = targetY - (y + collisionOffsetY + collisionHeight / 2f);
@@ -163,10 +191,51 @@ public abstract class Enemy {
             float moveY = (dy / dist) * moveSpeed * delta;
             moveWithCollision(moveX, moveY, world);
         } else {
-            currentTargetIndex++;
+            path.advance();
         }
     }
 
+    // steers one step along the shared flow field, returns false when the field does not cover this enemy
+    protected boolean followFlowField(GameWorld world, float delta) {
+        FlowField field = world.flowField;
+        int tile = getFlowFieldTile(world);
+        if (tile < 0) return false;
+
+        int next = field.nextTile(tile);
+        if (next < 0) return false;
+
+        float targetX = field.grid.xOf(next) * world.tileSize + world.tileSize / 2f;
+        float targetY = field.grid.yOf(next) * world.tileSize + world.tileSize / 2f;
+
+        float dx = targetX - (x + collisionOffsetX + collisionWidth / 2f);
+        float dy = targetY - (y + collisionOffsetY + collisionHeight / 2f);
+        float dist = (float) Math.sqrt(dx * dx + dy * dy);
+
+        if (dist > 1f) {
+            float moveX = (dx / dist) * moveSpeed * delta;
+            float moveY = (dy / dist) * moveSpeed * delta;
+            moveWithCollision(moveX, moveY, world);
+        }
+        return true;
+    }
+
+    public boolean isFollowingFlowField(GameWorld world) {
+        int tile = getFlowFieldTile(world);
+        return tile >= 0 && world.flowField.nextTile(tile) >= 0;
+    }
+
+    // tile under the collision box center, -1 when outside the field or the field was built for a smaller agent
+    private int getFlowFieldTile(GameWorld world) {
+        FlowField field = world.flowField;
+        if (field == null || field.getTargetTile() < 0) return -1;
+        if (getPathRadius(world.tileSize) > field.radius) return -1;
+
+        int tileX = (int) ((x + collisionOffsetX + collisionWidth / 2f) / world.tileSize);
+        int tileY = (int) ((y + collisionOffsetY + collisionHeight / 2f) / world.tileSize);
+        if (!field.grid.isInBounds(tileX, tileY)) return -1;
+        return field.grid.index(tileX, tileY);
+    }
+
     protected void handleAttack(Player player, GameScreen gameScreen) {
         if (!player.isAttacking) hitThisAttack = false;
         if (player.isAttacking && !hitThisAttack) {
@@ -197,18 +266,14 @@ public abstract class Enemy {
             moveY = moveY / length * moveSpeed * factor;
         }
 
-        // Step safely
-        int steps = (int) (Math.max(Math.abs(moveX), Math.abs(moveY)) / 2f) + 1; // 2 pixels per step
-        float stepX = moveX / steps;
-        float stepY = moveY / steps;
-
-        for (int i = 0; i < steps; i++) {
-            if (!checkCollision(x + stepX, y, world)) x += stepX;
-            else stepX = 0;
-            if (!checkCollision(x, y + stepY, world)) y += stepY;
-            else stepY = 0;
-            if (stepX == 0 && stepY == 0) break; // fully blocked
-        }
+        sweepBox(moveX, moveY, world);
+    }
+
+    // moves the collision box through the walls in one sweep, sliding along the walls it hits
+    protected void sweepBox(float moveX, float moveY, GameWorld world) {
+        world.moveBox(sweep, x + collisionOffsetX, y + collisionOffsetY, collisionWidth, collisionHeight, moveX, moveY);
+        x += sweep.moveX;
+        y += sweep.moveY;
     }
 
     protected void applyHitKnockback(float dx, float dy) {
@@ -233,36 +298,14 @@ public abstract class Enemy {
         return (float) Math.sqrt(dx * dx + dy * dy);
     }
 
-    protected boolean checkCollision(float testX, float testY, GameWorld world) {
-        int left = (int) ((testX + collisionOffsetX) / world.tileSize);
-        int right = (int) ((testX + collisionOffsetX + collisionWidth) / world.tileSize);
-        int bottom = (int) ((testY + collisionOffsetY) / world.tileSize);
-        int top = (int) ((testY + collisionOffsetY + collisionHeight) / world.tileSize);
-
-        for (int y = bottom; y <= top; y++)
-            for (int x = left; x <= right; x++)
-                if (world.isTileType(x, y, GameWorld.TileType.BLOCK)) return true;
-        return false;
-    }
-
     public void applySeparationForce(GameWorld world) {
         float repelStrength = 5f;
         float desiredDistance = 50f;
 
-        float moveX = 0f, moveY = 0f;
-
-        for (Enemy other : world.enemies) {
-            if (other == this) continue;
-            float dx = this.x - other.x;
-            float dy = this.y - other.y;
-            float dist2 = dx * dx + dy * dy;
-            if (dist2 < desiredDistance * desiredDistance && dist2 > 0.0001f) {
-                float dist = (float) Math.sqrt(dist2);
-                float push = (desiredDistance - dist) / desiredDistance;
-                moveX += (dx / dist) * push;
-                moveY += (dy / dist) * push;
-            }
-        }
+        // only the enemies in the cells around this one
+        separation.reset(desiredDistance);
+        world.enemyIndex.queryRadius(x, y, desiredDistance, separation);
+        float moveX = separation.moveX, moveY = separation.moveY;
 
         float len = (float) Math.sqrt(moveX * moveX + moveY * moveY);
         if (len > 0.001f) {
@@ -274,6 +317,31 @@ public abstract class Enemy {
         }
     }
 
+    // sums the push away from every enemy closer than the desired distance
+    private class Separation implements SpatialHash.Visitor<Enemy> {
+        float desiredDistance, moveX, moveY;
+
+        void reset(float desiredDistance) {
+            this.desiredDistance = desiredDistance;
+            moveX = 0f;
+            moveY = 0f;
+        }
+
+        @Override
+        public void visit(Enemy other) {
+            if (other == Enemy.this) return;
+            float dx = x - other.x;
+            float dy = y - other.y;
+            float dist2 = dx * dx + dy * dy;
+            if (dist2 < desiredDistance * desiredDistance && dist2 > 0.0001f) {
+                float dist = (float) Math.sqrt(dist2);
+                float push = (desiredDistance - dist) / desiredDistance;
+                moveX += (dx / dist) * push;
+                moveY += (dy / dist) * push;
+            }
+        }
+    }
+
     public void render(SpriteBatch batch) {
         batch.draw(currentFrame, x, y, width, height);
     }
@@ -291,11 +359,12 @@ public abstract class Enemy {
     }
 
     public void renderPath(SpriteBatch batch, Texture pixel, GameWorld world) {
-        if (currentPath == null || currentPath.isEmpty()) return;
+        PackedPath current = path.getPath();
+        if (current.isEmpty()) return;
         batch.setColor(Color.BLUE);
-        for (Node node : currentPath) {
-            float worldX = node.x * world.tileSize;
-            float worldY = node.y * world.tileSize;
+        for (int i = 0; i < current.length(); i++) {
+            float worldX = current.xAt(i) * world.tileSize;
+            float worldY = current.yAt(i) * world.tileSize;
             batch.draw(pixel, worldX, worldY, world.tileSize, world.tileSize);
         }
         batch.setColor(Color.WHITE);
@@ -308,6 +377,7 @@ public abstract class Enemy {
     //public abstract void attack();
 
     public void dispose() {
+        path.clear();
         spriteSheet.dispose();
     }
 }
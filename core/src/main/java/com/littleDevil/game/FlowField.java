@@ -0,0 +1,144 @@
+package com.littleDevil.game;
+
+import java.util.Arrays;
+
+/**
+ * Dijkstra map toward the player shared by all enemies.
+ * Every walkable tile stores its path distance to the player's tile and the direction of the next
+ * tile on a shortest path, so an enemy can steer with one lookup instead of running its own search.
+ * Rebuilt when the player's tile changes, at most once per MIN_REBUILD_INTERVAL, or after obstacles changed.
+ */
+public class FlowField implements TileChangeListener {
+
+    public static final float MIN_REBUILD_INTERVAL = 0.1f; // seconds between rebuilds
+    public static final int NO_DIRECTION = -1;
+
+    // 8 directions, index stored per tile
+    static final int[] DIR_X = { 1, 1, 0, -1, -1, -1, 0, 1 };
+    static final int[] DIR_Y = { 0, 1, 1, 1, 0, -1, -1, -1 };
+
+    public NavGrid grid;     // switched to the new grid when obstacles change
+    public final int radius; // agent clearance the field was built for
+    public final float[] distance;
+    public final byte[] direction; // index into DIR_X/DIR_Y, NO_DIRECTION when unreachable
+
+    private final IntMinHeap open;
+    private int targetTile = -1;
+    private float rebuildTimer = 0f;
+    private boolean dirty = true;
+
+    public FlowField(NavGrid grid, int radius) {
+        this.grid = grid;
+        this.radius = radius;
+        this.distance = new float[grid.size()];
+        this.direction = new byte[grid.size()];
+        this.open = new IntMinHeap(grid.size());
+        Arrays.fill(distance, Float.MAX_VALUE);
+        Arrays.fill(direction, (byte) NO_DIRECTION);
+    }
+
+    // rebuilds the field when the player moved to another tile and the rebuild budget allows it
+    public void update(float delta, Player player, int tileSize) {
+        rebuildTimer -= delta;
+
+        float playerCenterX = player.x + player.collisionOffsetX + player.collisionWidth / 2f;
+        float playerCenterY = player.y + player.collisionOffsetY + player.collisionHeight / 2f;
+        int tileX = (int) (playerCenterX / tileSize);
+        int tileY = (int) (playerCenterY / tileSize);
+        if (!grid.isInBounds(tileX, tileY)) return;
+
+        int tile = grid.index(tileX, tileY);
+        if (tile == targetTile && !dirty) return;
+        if (rebuildTimer > 0f) return;
+
+        build(tileX, tileY);
+        rebuildTimer = MIN_REBUILD_INTERVAL;
+    }
+
+    // marks the field for a rebuild on the next update, regardless of the player tile
+    public void invalidate() {
+        dirty = true;
+    }
+
+    // tiles in the rectangle changed, the whole field is rebuilt for the new grid on the next update
+    @Override
+    public void onTilesChanged(NavGrid grid, int minX, int minY, int maxX, int maxY) {
+        this.grid = grid;
+        dirty = true;
+    }
+
+    /**
+     * Runs one Dijkstra from the target tile over all tiles an agent of the field's radius can stand on.
+     */
+    public void build(int targetX, int targetY) {
+        int width = grid.width, height = grid.height;
+        byte[] clearance = grid.clearance;
+
+        Arrays.fill(distance, Float.MAX_VALUE);
+        Arrays.fill(direction, (byte) NO_DIRECTION);
+        open.clear();
+
+        targetTile = grid.index(targetX, targetY);
+        dirty = false;
+        distance[targetTile] = 0f;
+        open.add(targetTile, 0f);
+
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            int cx = current % width;
+            int cy = current / width;
+            float currentDistance = distance[current];
+
+            for (int d = 0; d < 8; d++) {
+                int nx = cx + DIR_X[d];
+                int ny = cy + DIR_Y[d];
+                if (nx < 0 || nx >= width || ny < 0 || ny >= height) continue;
+
+                int neighbor = ny * width + nx;
+                if (clearance[neighbor] <= radius) continue;
+
+                float newDistance = currentDistance + ((d & 1) == 1 ? AStarEngine.DIAGONAL_COST : 1f);
+                if (newDistance < distance[neighbor]) {
+                    distance[neighbor] = newDistance;
+                    direction[neighbor] = (byte) ((d + 4) & 7); // points back toward current
+                    open.update(neighbor, newDistance);
+                }
+            }
+        }
+    }
+
+    public int getTargetTile() {
+        return targetTile;
+    }
+
+    public boolean reaches(int tile) {
+        return tile == targetTile || direction[tile] != NO_DIRECTION;
+    }
+
+    /**
+     * Next tile toward the target from the given tile, or -1 when the tile is not part of the field.
+     * Tiles inside the collision padding have no direction of their own,
+     * they step to the neighbor closest to the target instead.
+     */
+    public int nextTile(int tile) {
+        if (tile == targetTile) return tile;
+
+        int x = grid.xOf(tile), y = grid.yOf(tile);
+        int dir = direction[tile];
+        if (dir != NO_DIRECTION) return grid.index(x + DIR_X[dir], y + DIR_Y[dir]);
+
+        int best = -1;
+        float bestDistance = Float.MAX_VALUE;
+        for (int d = 0; d < 8; d++) {
+            int nx = x + DIR_X[d];
+            int ny = y + DIR_Y[d];
+            if (!grid.isInBounds(nx, ny)) continue;
+            int neighbor = grid.index(nx, ny);
+            if (distance[neighbor] < bestDistance) {
+                bestDistance = distance[neighbor];
+                best = neighbor;
+            }
+        }
+        return best;
+    }
+}
@@ -10,6 +10,10 @@ import java.util.List;
 
 public class GameWorld {
 
+    public static final float ENEMY_CELL_SIZE = 64f; // pixels per enemy index cell, above the separation distance
+    // collider categories of the entities and trigger volumes, next to the TileLayer flags the collision objects use
+    public static final int COLLIDER_PLAYER = 32, COLLIDER_ENEMY = 64, COLLIDER_TRIGGER = 128;
+
     // World dimensions
     public final int mapWidth, mapHeight, tileSize;
     public final int widthInTiles, heightInTiles;
@@ -25,19 +29,38 @@ public class GameWorld {
 
     // Map and collision
     public Texture mapTexture;
-    private final int[][] grid;
+    public final TileLayer tiles; // flags of the collision objects on every tile
     private final List<CollisionObject> objects = new ArrayList<>();
+    public final AabbTree<Object> colliders = new AabbTree<>(); // exact boxes of the objects and entities, categories above
+    public final TriggerSystem triggers = new TriggerSystem(colliders, COLLIDER_TRIGGER); // interaction volumes, tested when the player or an enemy moves
 
-    public boolean[][] collisionGrid;
+    public int gridVersion = 0; // bumped whenever the grid changes, invalidates cached paths
+    public NavGrid navGrid; // obstacle tiles with clearance, for pathfinding, replaced by a repaired copy when obstacles change
+    private final List<TileChangeListener> tileListeners = new ArrayList<>();
 
     // Decorations
     private Texture candleSheet;
     Texture pixel = new Texture("whitePixel.png");
 
     // Pathing
-    private final float PATH_UPDATE_INTERVAL = 1f; // 5 updates per second
-
-    public enum TileType { BLOCK, STAIRS, ALTAR, BOOST }
+    public final SpatialHash<Enemy> enemyIndex;  // enemies by position, for neighbor queries
+    public RepathScheduler repathScheduler = new RepathScheduler(); // picks which enemies repath this frame
+    public FlowField flowField;        // shared distance/direction map toward the player
+    public boolean useFlowField = false; // enemies steer from the flow field instead of their own paths
+    public JpsPlusEngine jpsPlus;      // precomputed jump distances for the default agent size
+    public HierarchicalPathfinder hierarchical; // clustered abstract graph for long range requests
+    public MultiResolutionPathfinder multiResolution; // coarse nav layer over the collision grid
+    public NavMesh navMesh;            // convex walkable rectangles between the collision objects
+    public LandmarkHeuristic landmarks; // landmark distance tables for the ASTAR_LANDMARKS mode
+    public ComponentLabels components; // connected walkable areas, rejects unreachable goals
+    public CostLayer costLayer;        // stairs and crowd costs for the A* searches
+    public boolean useTraversalCosts = true;
+    public Pathfinder.Mode pathfinderMode = Pathfinder.Mode.ASTAR;
+    public final PathTelemetry pathTelemetry = new PathTelemetry(); // measured cost of every mode on this map
+    public PathAutoSelector autoSelector = new PathAutoSelector(); // picks the mode per request in AUTO mode
+    public PathService pathService; // solves enemy paths outside the enemy update, null = solve inline
+    public PathCache pathCache = new PathCache(); // shared solved paths, null = no caching
+    public boolean smoothPaths = true; // string-pull paths to their corners, chase directly when the player is in sight
 
     public GameWorld(int mapWidth, int mapHeight, int tileSize) {
         this.mapWidth = mapWidth;
@@ -45,24 +68,30 @@ public class GameWorld {
         this.tileSize = tileSize;
         this.widthInTiles = mapWidth / tileSize;
         this.heightInTiles = mapHeight / tileSize;
-        this.grid = new int[heightInTiles][widthInTiles];
+        this.tiles = new TileLayer(widthInTiles, heightInTiles);
+        this.enemyIndex = new SpatialHash<>(mapWidth, mapHeight, ENEMY_CELL_SIZE);
     }
 
     public void initialize() {
         mapTexture = new Texture("MapAssets/map.png");
+        // worker threads; new TimeSlicedPathService() keeps searches on this thread under a per-frame budget instead
+        pathService = new PathRequestService(PathRequestService.defaultWorkerCount());
 
         // Player
         player = new Player(230, 100, "Spritesheets/playerSpriteSheet.png");
+        float left = player.x + player.collisionOffsetX, bottom = player.y + player.collisionOffsetY;
+        player.colliderHandle = colliders.insert(player, left, bottom, left + player.collisionWidth, bottom + player.collisionHeight, COLLIDER_PLAYER);
+        player.triggerHandle = triggers.track(player, COLLIDER_PLAYER, player.colliderHandle);
 
         // Enemies
         enemies = new ArrayList<>();
         enemies = new ArrayList<>();
-        enemies.add(new Templar(250, 140, this));
-        //enemies.add(new Templar(270, 140, this));
-        //enemies.add(new Templar(290, 140, this));
-        //enemies.add(new Templar(310, 140, this));
-        //enemies.add(new Templar(330, 140, this));
-        //enemies.add(new Templar(350, 140, this));
+        addEnemy(new Templar(250, 140, this));
+        //addEnemy(new Templar(270, 140, this));
+        //addEnemy(new Templar(290, 140, this));
+        //addEnemy(new Templar(310, 140, this));
+        //addEnemy(new Templar(330, 140, this));
+        //addEnemy(new Templar(350, 140, this));
 
 
         // Altars
@@ -71,6 +100,11 @@ public class GameWorld {
         smallAltarTopRight = new SmallAltar(498, 314, "Spritesheets/littleAltarSpritesheet.png", 5f, CollisionObjectsData.collisionObjects[1]);
         smallAltarBotRight = new SmallAltar(498, 50, "Spritesheets/littleAltarSpritesheet.png", 5f, CollisionObjectsData.collisionObjects[2]);
         smallAltarBotLeft = new SmallAltar(66, 50, "Spritesheets/littleAltarSpritesheet.png", 5f, CollisionObjectsData.collisionObjects[3]);
+        triggers.add(bigAltar.interactionBox, COLLIDER_PLAYER, bigAltar);
+        triggers.add(smallAltarTopLeft.interactionBox, COLLIDER_PLAYER, smallAltarTopLeft);
+        triggers.add(smallAltarTopRight.interactionBox, COLLIDER_PLAYER, smallAltarTopRight);
+        triggers.add(smallAltarBotRight.interactionBox, COLLIDER_PLAYER, smallAltarBotRight);
+        triggers.add(smallAltarBotLeft.interactionBox, COLLIDER_PLAYER, smallAltarBotLeft);
 
         // Candles
         candleSheet = new Texture("Spritesheets/candleSmallSpritesheet.png");
@@ -95,14 +129,31 @@ public class GameWorld {
 
     // update all the logic
     public void update(float delta, GameScreen gameScreen) {
-        player.update(delta, this);
+        // paths finished since the last frame
+        if (pathService != null) pathService.update(this);
+        // landmark tables dropped by a runtime change are built again one landmark per frame
+        if (landmarks != null && !landmarks.isReady()) landmarks.buildStep();
 
-        // update A* paths when needed = reduce timer
-        for(Enemy e :  enemies) {
-            e.updatePathsForEnemy(delta, player, this, PATH_UPDATE_INTERVAL);
+        player.update(delta, this);
+        float left = player.x + player.collisionOffsetX, bottom = player.y + player.collisionOffsetY;
+        colliders.move(player.colliderHandle, left, bottom, left + player.collisionWidth, bottom + player.collisionHeight);
+        triggers.update(player.triggerHandle);
+
+        // one search toward the player for all enemies
+        if (useFlowField) flowField.update(delta, player, tileSize);
+
+        // new paths for the enemies that need them most, within the per-frame budget
+        repathScheduler.update(delta, player, this);
+
+        for (Enemy enemy : enemies) {
+            enemy.update(delta, player, this, gameScreen);
+            enemyIndex.move(enemy.spatialHandle, enemy.x, enemy.y);
+            left = enemy.x + enemy.collisionOffsetX;
+            bottom = enemy.y + enemy.collisionOffsetY;
+            colliders.move(enemy.colliderHandle, left, bottom, left + enemy.collisionWidth, bottom + enemy.collisionHeight);
+            triggers.update(enemy.triggerHandle);
         }
-
-        for (Enemy enemy : enemies) enemy.update(delta, player, this, gameScreen);
+        if (useTraversalCosts) costLayer.updateOccupancy(enemies, tileSize);
         for (GameCandle candle : candles) candle.update(delta);
 
         bigAltar.update(delta, player,this);
@@ -163,35 +214,122 @@ public class GameWorld {
         }
     }
 
-    // Adds a CollisionObject to the objects array of the GameWorld
+    // Adds an enemy to the world, the enemy index and the colliders
+    public void addEnemy(Enemy enemy) {
+        enemies.add(enemy);
+        enemy.spatialHandle = enemyIndex.insert(enemy, enemy.x, enemy.y);
+        float left = enemy.x + enemy.collisionOffsetX, bottom = enemy.y + enemy.collisionOffsetY;
+        enemy.colliderHandle = colliders.insert(enemy, left, bottom, left + enemy.collisionWidth, bottom + enemy.collisionHeight, COLLIDER_ENEMY);
+        enemy.triggerHandle = triggers.track(enemy, COLLIDER_ENEMY, enemy.colliderHandle);
+    }
+
+    // Adds a CollisionObject to the objects array of the GameWorld, after the grid was generated the pathing follows
     public void addObject(CollisionObject obj) {
         objects.add(obj);
-        obj.markOnGrid(grid, tileSize);
+        obj.markOnTiles(tiles, tileSize);
+        obj.colliderHandle = colliders.insert(obj, obj.getLeft(), obj.getBottom(), obj.getRight(), obj.getTop(), TileLayer.flagOf(obj.type));
+        onTilesChanged(obj.getTileMinX(tileSize), obj.getTileMinY(tileSize), obj.getTileMaxX(tileSize), obj.getTileMaxY(tileSize));
+    }
+
+    // Removes a CollisionObject at runtime, the tiles under it keep the flags of the other objects there
+    public void removeObject(CollisionObject obj) {
+        if (!objects.remove(obj)) return;
+        colliders.remove(obj.colliderHandle);
+        obj.colliderHandle = -1;
+        refreshTiles(obj.getTileMinX(tileSize), obj.getTileMinY(tileSize), obj.getTileMaxX(tileSize), obj.getTileMaxY(tileSize));
+    }
+
+    // Moves a CollisionObject at runtime, the old and the new area are published as one change
+    public void moveObject(CollisionObject obj, int posX, int posY) {
+        int minX = obj.getTileMinX(tileSize), minY = obj.getTileMinY(tileSize);
+        int maxX = obj.getTileMaxX(tileSize), maxY = obj.getTileMaxY(tileSize);
+        obj.posX = posX;
+        obj.posY = posY;
+        if (!objects.contains(obj)) return;
+        colliders.move(obj.colliderHandle, obj.getLeft(), obj.getBottom(), obj.getRight(), obj.getTop());
+        refreshTiles(Math.min(minX, obj.getTileMinX(tileSize)), Math.min(minY, obj.getTileMinY(tileSize)),
+            Math.max(maxX, obj.getTileMaxX(tileSize)), Math.max(maxY, obj.getTileMaxY(tileSize)));
     }
 
-    // get tile type for player and enemies collision, altars, boosts...
-    public boolean isTileType(int tileX, int tileY, TileType type) {
-        int tile = grid[tileY][tileX];
-        if (tile < 0) return false;
-        return switch (type) {
-            case BLOCK -> tile == 1 || tile == 2;
-            case ALTAR -> tile == 3;
-            case BOOST -> tile == 4;
-            case STAIRS -> tile == 5;
-        };
+    // told about every runtime obstacle change, after the world's own pathing layers
+    public void addTileListener(TileChangeListener listener) {
+        tileListeners.add(listener);
     }
 
-    // generates a collision grid for enemies pathfinding based on grid
+    public void removeTileListener(TileChangeListener listener) {
+        tileListeners.remove(listener);
+    }
+
+    public List<CollisionObject> getObjects() {
+        return objects;
+    }
+
+    /**
+     * Moves a collision box (pixels) by (dx, dy) through the walls and borders, sliding along them; result in sweep.
+     * The tiles answer first. Only when one stopped the box the move is done again against the exact wall boxes
+     * in colliders: the tiles round every wall out to whole tiles and stop the box up to a tile early.
+     */
+    public void moveBox(TileSweep sweep, float left, float bottom, float width, float height, float dx, float dy) {
+        sweep.move(tiles, tileSize, TileLayer.BLOCK, left, bottom, width, height, dx, dy);
+        if (sweep.hitX || sweep.hitY) sweep.move(colliders, TileLayer.BLOCK, left, bottom, width, height, dx, dy);
+    }
+
+    // generates the grid for enemies pathfinding from the obstacle tiles
     public void generateCollisionGrid() {
-        collisionGrid = new boolean[heightInTiles][widthInTiles];
+        gridVersion++;
+        navGrid = NavGrid.fromTiles(tiles, TileLayer.OBSTACLE);
+        flowField = new FlowField(navGrid, Pathfinder.COLLISION_PADDING);
+        jpsPlus = new JpsPlusEngine(navGrid, Pathfinder.COLLISION_PADDING);
+        hierarchical = new HierarchicalPathfinder(navGrid, Pathfinder.COLLISION_PADDING);
+        multiResolution = new MultiResolutionPathfinder(navGrid, Pathfinder.COLLISION_PADDING);
+        navMesh = NavMesh.build(this, Pathfinder.COLLISION_PADDING);
+        landmarks = new LandmarkHeuristic(navGrid, Pathfinder.COLLISION_PADDING);
+        components = new ComponentLabels(navGrid, Pathfinder.COLLISION_PADDING);
+        costLayer = CostLayer.fromWorld(this);
+
+        // costs measured on the old map say nothing about this one
+        pathTelemetry.reset();
+        autoSelector.reset();
+    }
 
-        for (int y = 0; y < heightInTiles; y++) {
-            for (int x = 0; x < widthInTiles; x++) {
-                int tile = grid[y][x];
-                collisionGrid[y][x] = (tile == 1); // world edge
-                collisionGrid[y][x] = (tile == 2); // obstacle collision
-            }
+    // clears the rectangle (inclusive tiles) and marks the objects overlapping it again
+    private void refreshTiles(int minX, int minY, int maxX, int maxY) {
+        tiles.clear(minX, minY, maxX, maxY);
+        for (CollisionObject obj : objects) obj.markOnTiles(tiles, tileSize, minX, minY, maxX, maxY);
+        onTilesChanged(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Publishes changed tiles (inclusive rectangle) to the pathing, instead of generating everything again.
+     * Path workers may still search the old grid: everything they read is replaced by a copy for the new grid
+     * (nav grid, jump distances, coarse layer, landmarks, nav mesh), and results for the old grid are dropped.
+     * The layers only used on this thread switch to the new grid: the hierarchical clusters and the cost layer
+     * redo only the part around the rectangle, the component labels are relabeled completely on their next query
+     * and the flow field is rebuilt completely on its next update.
+     */
+    private void onTilesChanged(int minX, int minY, int maxX, int maxY) {
+        gridVersion++;
+        if (navGrid == null) return; // still loading, generateCollisionGrid builds everything
+        minX = Math.max(0, minX);
+        minY = Math.max(0, minY);
+        maxX = Math.min(widthInTiles - 1, maxX);
+        maxY = Math.min(heightInTiles - 1, maxY);
+        if (minX > maxX || minY > maxY) return;
+
+        navGrid = navGrid.withTiles(tiles, TileLayer.OBSTACLE, minX, minY, maxX, maxY);
+        jpsPlus = new JpsPlusEngine(jpsPlus, navGrid, minX, minY, maxX, maxY);
+        multiResolution = new MultiResolutionPathfinder(multiResolution, navGrid, minX, minY, maxX, maxY);
+        landmarks = landmarks.forChangedGrid(navGrid, minX, minY, maxX, maxY);
+        navMesh = NavMesh.repair(navMesh, this, minX, minY, maxX, maxY);
+
+        hierarchical.onTilesChanged(navGrid, minX, minY, maxX, maxY);
+        components.onTilesChanged(navGrid, minX, minY, maxX, maxY);
+        flowField.onTilesChanged(navGrid, minX, minY, maxX, maxY);
+        costLayer.onTilesChanged(navGrid, tiles, minX, minY, maxX, maxY);
+        if (enemies != null) {
+            for (Enemy enemy : enemies) enemy.onTilesChanged(this, minX, minY, maxX, maxY);
         }
+        for (TileChangeListener listener : tileListeners) listener.onTilesChanged(navGrid, minX, minY, maxX, maxY);
     }
 
     // function for rendering the debug objects
@@ -204,17 +342,14 @@ public class GameWorld {
         }
         // Render collision grid
         batch.setColor(1f, 0f, 0f, 0.3f); // red semi-transparent
-        for (int y = 0; y < heightInTiles; y++) {
-            for (int x = 0; x < widthInTiles; x++) {
-                if (collisionGrid[y][x]) {
-                    batch.draw(pixel, x * tileSize, y * tileSize, tileSize, tileSize);
-                }
-            }
+        for (int i = tiles.nextTile(TileLayer.OBSTACLE, 0); i >= 0; i = tiles.nextTile(TileLayer.OBSTACLE, i + 1)) {
+            batch.draw(pixel, i % widthInTiles * tileSize, i / widthInTiles * tileSize, tileSize, tileSize);
         }
         batch.setColor(1f, 1f, 1f, 1f); // reset color
     }
 
     public void dispose() {
+        if (pathService != null) pathService.dispose();
         mapTexture.dispose();
         candleSheet.dispose();
         if (player != null) player.dispose();
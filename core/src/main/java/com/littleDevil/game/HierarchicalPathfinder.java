@@ -0,0 +1,397 @@
+package com.littleDevil.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hierarchical pathfinding (HPA*) over the NavGrid.
+ * The grid is split into square clusters, walkable stretches along cluster borders become entrances
+ * (abstract nodes), and the path costs between the entrances of a cluster are precomputed.
+ * A request searches the small abstract graph and only refines the first few segments into tiles,
+ * the enemy repaths when it reaches the end of the refined part.
+ */
+public class HierarchicalPathfinder implements TileChangeListener {
+
+    public static final int DEFAULT_CLUSTER_SIZE = 10;  // tiles per cluster side
+    public static final int REFINED_SEGMENTS = 4;       // abstract segments turned into tiles per request
+    private static final int MAX_SINGLE_ENTRANCE = 6;   // longer border stretches get an entrance at each end
+
+    public NavGrid grid;
+    public final int radius;
+    public final int clusterSize;
+    public final int clustersX, clustersY;
+
+    // abstract graph
+    private final List<AbstractNode> nodes = new ArrayList<>();
+    private int[] freeNodeIds = new int[16];
+    private int freeNodeCount = 0;
+    private final int[] nodeAtTile;        // abstract node id per tile, -1 when the tile is no entrance
+    private final int[][] clusterNodes;    // node ids per cluster
+    private final int[] clusterNodeCounts;
+
+    // scratch for cluster local dijkstra
+    private final float[] localDistance;
+    private final IntMinHeap localOpen;
+    private final float[] startCosts, goalCosts; // per local tile of the start/goal cluster
+
+    // scratch for the abstract search
+    private float[] gCost = new float[0];
+    private int[] parent = new int[0];
+    private int[] seen = new int[0];
+    private int generation = 0;
+    private final IntMinHeap open = new IntMinHeap(0);
+    private int[] abstractPath = new int[0];
+    private AStarEngine engine;
+    private final int[] segmentBuffer;
+    public int lastExpansions; // abstract and refining expansions of the last findPath
+
+    public HierarchicalPathfinder(NavGrid grid, int radius) {
+        this(grid, radius, DEFAULT_CLUSTER_SIZE);
+    }
+
+    public HierarchicalPathfinder(NavGrid grid, int radius, int clusterSize) {
+        this.grid = grid;
+        this.radius = radius;
+        this.clusterSize = clusterSize;
+        this.clustersX = (grid.width + clusterSize - 1) / clusterSize;
+        this.clustersY = (grid.height + clusterSize - 1) / clusterSize;
+
+        nodeAtTile = new int[grid.size()];
+        Arrays.fill(nodeAtTile, -1);
+        clusterNodes = new int[clustersX * clustersY][];
+        clusterNodeCounts = new int[clustersX * clustersY];
+
+        int clusterTiles = clusterSize * clusterSize;
+        localDistance = new float[clusterTiles];
+        localOpen = new IntMinHeap(clusterTiles);
+        startCosts = new float[clusterTiles];
+        goalCosts = new float[clusterTiles];
+
+        engine = new AStarEngine(grid);
+        segmentBuffer = new int[grid.size()];
+
+        for (int c = 0; c < clusterNodes.length; c++) rebuildCluster(c);
+    }
+
+    // ===========================
+    // --- ABSTRACT GRAPH SETUP ---
+    // ===========================
+
+    /**
+     * Switches to grid and rebuilds only the clusters whose entrances or inner costs can change when tiles
+     * in the rectangle changed (clearance reaches radius + 1 tiles further, border tiles also change the neighboring cluster).
+     */
+    @Override
+    public void onTilesChanged(NavGrid grid, int minX, int minY, int maxX, int maxY) {
+        this.grid = grid;
+        engine = new AStarEngine(grid);
+        int margin = radius + 2;
+        int fromX = Math.max(0, (minX - margin) / clusterSize);
+        int fromY = Math.max(0, (minY - margin) / clusterSize);
+        int toX = Math.min(clustersX - 1, (maxX + margin) / clusterSize);
+        int toY = Math.min(clustersY - 1, (maxY + margin) / clusterSize);
+
+        for (int cy = fromY; cy <= toY; cy++)
+            for (int cx = fromX; cx <= toX; cx++)
+                rebuildCluster(cy * clustersX + cx);
+    }
+
+    private void rebuildCluster(int cluster) {
+        // drop the old entrances
+        for (int i = 0; i < clusterNodeCounts[cluster]; i++) {
+            int id = clusterNodes[cluster][i];
+            nodeAtTile[nodes.get(id).tile] = -1;
+            nodes.set(id, null);
+            pushFreeId(id);
+        }
+        clusterNodeCounts[cluster] = 0;
+        if (clusterNodes[cluster] == null) clusterNodes[cluster] = new int[8];
+
+        int cx = cluster % clustersX, cy = cluster / clustersX;
+        int x0 = cx * clusterSize, y0 = cy * clusterSize;
+        int x1 = Math.min(grid.width, x0 + clusterSize) - 1;
+        int y1 = Math.min(grid.height, y0 + clusterSize) - 1;
+
+        // entrances on all four borders, the neighbor finds the same stretches from its side
+        if (x1 + 1 < grid.width) scanBorder(cluster, x1, y0, 0, 1, y1 - y0 + 1, 1, 0);
+        if (x0 > 0) scanBorder(cluster, x0, y0, 0, 1, y1 - y0 + 1, -1, 0);
+        if (y1 + 1 < grid.height) scanBorder(cluster, x0, y1, 1, 0, x1 - x0 + 1, 0, 1);
+        if (y0 > 0) scanBorder(cluster, x0, y0, 1, 0, x1 - x0 + 1, 0, -1);
+
+        // costs between the entrances of this cluster
+        int count = clusterNodeCounts[cluster];
+        for (int i = 0; i < count; i++) {
+            AbstractNode node = nodes.get(clusterNodes[cluster][i]);
+            node.edgeCount = 0;
+            localDijkstra(cluster, node.tile, localDistance);
+            for (int j = 0; j < count; j++) {
+                if (i == j) continue;
+                int otherId = clusterNodes[cluster][j];
+                float cost = localDistance[toLocal(cluster, nodes.get(otherId).tile)];
+                if (cost < Float.MAX_VALUE) node.addEdge(otherId, cost);
+            }
+        }
+    }
+
+    // walks one border of a cluster and places entrances on every walkable stretch
+    private void scanBorder(int cluster, int startX, int startY, int stepX, int stepY, int length, int outX, int outY) {
+        int run = 0;
+        for (int i = 0; i <= length; i++) {
+            int x = startX + stepX * i, y = startY + stepY * i;
+            boolean open = i < length && isWalkable(x, y) && isWalkable(x + outX, y + outY);
+            if (open) {
+                run++;
+                continue;
+            }
+            if (run > 0) {
+                int first = i - run, last = i - 1;
+                if (run < MAX_SINGLE_ENTRANCE) {
+                    int mid = (first + last) / 2;
+                    addEntrance(cluster, startX + stepX * mid, startY + stepY * mid, outX, outY);
+                } else {
+                    addEntrance(cluster, startX + stepX * first, startY + stepY * first, outX, outY);
+                    addEntrance(cluster, startX + stepX * last, startY + stepY * last, outX, outY);
+                }
+            }
+            run = 0;
+        }
+    }
+
+    private void addEntrance(int cluster, int x, int y, int outX, int outY) {
+        int tile = grid.index(x, y);
+        int id = nodeAtTile[tile];
+        if (id < 0) {
+            id = allocateNodeId();
+            nodes.set(id, new AbstractNode(tile));
+            nodeAtTile[tile] = id;
+            if (clusterNodeCounts[cluster] == clusterNodes[cluster].length)
+                clusterNodes[cluster] = Arrays.copyOf(clusterNodes[cluster], clusterNodes[cluster].length * 2);
+            clusterNodes[cluster][clusterNodeCounts[cluster]++] = id;
+        }
+        nodes.get(id).addPartner(grid.index(x + outX, y + outY));
+    }
+
+    private int allocateNodeId() {
+        if (freeNodeCount > 0) return freeNodeIds[--freeNodeCount];
+        nodes.add(null);
+        return nodes.size() - 1;
+    }
+
+    private void pushFreeId(int id) {
+        if (freeNodeCount == freeNodeIds.length) freeNodeIds = Arrays.copyOf(freeNodeIds, freeNodeCount * 2);
+        freeNodeIds[freeNodeCount++] = id;
+    }
+
+    // dijkstra that never leaves the cluster, distances are indexed by local tile
+    private void localDijkstra(int cluster, int sourceTile, float[] distanceOut) {
+        int cx = cluster % clustersX, cy = cluster / clustersX;
+        int x0 = cx * clusterSize, y0 = cy * clusterSize;
+        int x1 = Math.min(grid.width, x0 + clusterSize) - 1;
+        int y1 = Math.min(grid.height, y0 + clusterSize) - 1;
+
+        Arrays.fill(distanceOut, Float.MAX_VALUE);
+        localOpen.clear();
+        int source = toLocal(cluster, sourceTile);
+        distanceOut[source] = 0f;
+        localOpen.add(source, 0f);
+
+        while (!localOpen.isEmpty()) {
+            int current = localOpen.poll();
+            int lx = current % clusterSize, ly = current / clusterSize;
+            float currentDistance = distanceOut[current];
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    if (dx == 0 && dy == 0) continue;
+                    int x = x0 + lx + dx, y = y0 + ly + dy;
+                    if (x < x0 || x > x1 || y < y0 || y > y1 || !isWalkable(x, y)) continue;
+                    int local = (y - y0) * clusterSize + (x - x0);
+                    float d = currentDistance + (dx != 0 && dy != 0 ? AStarEngine.DIAGONAL_COST : 1f);
+                    if (d < distanceOut[local]) {
+                        distanceOut[local] = d;
+                        localOpen.update(local, d);
+                    }
+                }
+            }
+        }
+    }
+
+    private int clusterOf(int x, int y) {
+        return (y / clusterSize) * clustersX + x / clusterSize;
+    }
+
+    private int toLocal(int cluster, int tile) {
+        int x0 = (cluster % clustersX) * clusterSize, y0 = (cluster / clustersX) * clusterSize;
+        return (grid.yOf(tile) - y0) * clusterSize + (grid.xOf(tile) - x0);
+    }
+
+    public boolean isWalkable(int x, int y) {
+        return grid.isInBounds(x, y) && grid.clearance[grid.index(x, y)] > radius;
+    }
+
+    public int getNodeCount() {
+        return nodes.size() - freeNodeCount;
+    }
+
+    // ==============
+    // --- SEARCH ---
+    // ==============
+
+    /**
+     * Finds an abstract path and writes the tiles of its first REFINED_SEGMENTS segments (start first) into pathOut.
+     * Short requests skip the abstract layer and are solved directly.
+     * pathOut has to hold at least grid.size() entries.
+     * @return number of tiles written, 0 when no path was found
+     */
+    public int findPath(int startX, int startY, int goalX, int goalY, int[] pathOut) {
+        lastExpansions = 0;
+        if (!grid.isInBounds(startX, startY) || !grid.isInBounds(goalX, goalY)) return 0;
+        if (!isWalkable(goalX, goalY)) return 0;
+
+        int startCluster = clusterOf(startX, startY);
+        int goalCluster = clusterOf(goalX, goalY);
+        if (Math.max(Math.abs(goalX - startX), Math.abs(goalY - startY)) <= clusterSize) {
+            int length = engine.findPath(startX, startY, goalX, goalY, radius, pathOut);
+            lastExpansions = AStarEngine.lastExpansionCount();
+            return length;
+        }
+
+        int start = grid.index(startX, startY);
+        int goal = grid.index(goalX, goalY);
+        localDijkstra(startCluster, start, startCosts);
+        localDijkstra(goalCluster, goal, goalCosts);
+
+        int waypoints = searchAbstract(start, startCluster, goal, goalCluster, goalX, goalY);
+        if (waypoints == 0) return 0;
+        return refine(waypoints, pathOut);
+    }
+
+    // A* over entrances, start and goal join as two temporary nodes; leaves the waypoint tiles in abstractPath
+    private int searchAbstract(int start, int startCluster, int goal, int goalCluster, int goalX, int goalY) {
+        int nodeCount = nodes.size();
+        int startId = nodeCount, goalId = nodeCount + 1;
+        prepareAbstractSearch(nodeCount + 2);
+        int gen = generation;
+
+        seen[startId] = gen;
+        gCost[startId] = 0f;
+        parent[startId] = -1;
+        open.add(startId, AStarEngine.heuristic(grid.xOf(start), grid.yOf(start), goalX, goalY));
+
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            lastExpansions++;
+            if (current == goalId) return writeAbstractPath(start, goal, startId, goalId);
+            float currentCost = gCost[current];
+
+            if (current == startId) {
+                // the start reaches its own cluster's entrances, or the goal directly when they share a cluster
+                for (int i = 0; i < clusterNodeCounts[startCluster]; i++) {
+                    int id = clusterNodes[startCluster][i];
+                    float cost = startCosts[toLocal(startCluster, nodes.get(id).tile)];
+                    if (cost < Float.MAX_VALUE) relax(id, currentCost + cost, current, goalX, goalY, gen);
+                }
+                if (startCluster == goalCluster) {
+                    float cost = startCosts[toLocal(startCluster, goal)];
+                    if (cost < Float.MAX_VALUE) relax(goalId, currentCost + cost, current, goalX, goalY, gen);
+                }
+                continue;
+            }
+
+            AbstractNode node = nodes.get(current);
+            for (int e = 0; e < node.edgeCount; e++)
+                relax(node.edges[e], currentCost + node.edgeCosts[e], current, goalX, goalY, gen);
+            for (int p = 0; p < node.partnerCount; p++) {
+                int partner = nodeAtTile[node.partners[p]];
+                if (partner >= 0) relax(partner, currentCost + 1f, current, goalX, goalY, gen);
+            }
+            if (clusterOf(grid.xOf(node.tile), grid.yOf(node.tile)) == goalCluster) {
+                float cost = goalCosts[toLocal(goalCluster, node.tile)];
+                if (cost < Float.MAX_VALUE) relax(goalId, currentCost + cost, current, goalX, goalY, gen);
+            }
+        }
+        return 0;
+    }
+
+    private void relax(int id, float cost, int from, int goalX, int goalY, int gen) {
+        if (seen[id] == gen && cost >= gCost[id]) return;
+        seen[id] = gen;
+        gCost[id] = cost;
+        parent[id] = from;
+        int tile = id < nodes.size() ? nodes.get(id).tile : -1;
+        float h = tile < 0 ? 0f : AStarEngine.heuristic(grid.xOf(tile), grid.yOf(tile), goalX, goalY);
+        open.update(id, cost + h);
+    }
+
+    private void prepareAbstractSearch(int size) {
+        if (gCost.length < size) {
+            int capacity = Math.max(size, gCost.length * 2);
+            gCost = new float[capacity];
+            parent = new int[capacity];
+            seen = new int[capacity];
+            abstractPath = new int[capacity];
+            open.ensureCapacity(capacity);
+            generation = 0;
+        }
+        open.clear();
+        generation++;
+    }
+
+    private int writeAbstractPath(int start, int goal, int startId, int goalId) {
+        int length = 0;
+        for (int n = goalId; n != -1; n = parent[n]) length++;
+        int i = length;
+        for (int n = goalId; n != -1; n = parent[n]) {
+            abstractPath[--i] = n == goalId ? goal : n == startId ? start : nodes.get(n).tile;
+        }
+        return length;
+    }
+
+    // turns the first abstract segments into tiles
+    private int refine(int waypoints, int[] pathOut) {
+        int length = 0;
+        int last = Math.min(waypoints - 1, REFINED_SEGMENTS);
+        for (int i = 0; i < last; i++) {
+            int from = abstractPath[i], to = abstractPath[i + 1];
+            if (from == to && length > 0) continue;
+            int segment = engine.findPath(grid.xOf(from), grid.yOf(from), grid.xOf(to), grid.yOf(to), radius, segmentBuffer);
+            lastExpansions += AStarEngine.lastExpansionCount();
+            if (segment == 0) break;
+            int skip = length == 0 ? 0 : 1; // segments share their end tiles
+            System.arraycopy(segmentBuffer, skip, pathOut, length, segment - skip);
+            length += segment - skip;
+        }
+        return length;
+    }
+
+    /**
+     * Entrance tile of the abstract graph, with its inner-cluster edges and the tiles it crosses to.
+     */
+    private static class AbstractNode {
+        final int tile;
+        int[] edges = new int[4];
+        float[] edgeCosts = new float[4];
+        int edgeCount;
+        int[] partners = new int[2];
+        int partnerCount;
+
+        AbstractNode(int tile) {
+            this.tile = tile;
+        }
+
+        void addEdge(int target, float cost) {
+            if (edgeCount == edges.length) {
+                edges = Arrays.copyOf(edges, edgeCount * 2);
+                edgeCosts = Arrays.copyOf(edgeCosts, edgeCount * 2);
+            }
+            edges[edgeCount] = target;
+            edgeCosts[edgeCount++] = cost;
+        }
+
+        void addPartner(int tile) {
+            for (int i = 0; i < partnerCount; i++) if (partners[i] == tile) return;
+            if (partnerCount == partners.length) partners = Arrays.copyOf(partners, partnerCount * 2);
+            partners[partnerCount++] = tile;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.littleDevil.game;
+
+import java.util.Arrays;
+
+/**
+ * Lifelong Planning A* (LPA*) that keeps its search tree between repaths of one enemy.
+ * The tree is rooted at an anchor tile near the enemy and grows toward the player:
+ * when the player moves, only the open list is re-keyed for the new goal and the search continues from
+ * the g-values it already has; when tiles change, only the affected vertices are repaired.
+ * D* Lite handles a moving start but a fixed goal, here the goal moves, so the tree is re-rooted
+ * whenever the enemy walks too far away from its anchor.
+ * The path runs from the anchor, the enemy joins it at the node closest to where it was heading.
+ */
+public class IncrementalPlanner implements TileChangeListener {
+
+    public static final int REROOT_DISTANCE = 8; // tiles the enemy may move away from the anchor
+    private static final float INF = Float.POSITIVE_INFINITY;
+    private static final float KEY_EPSILON = 0.001f; // g-values summed in another order differ in the last bits
+
+    public NavGrid grid;
+    public final int radius;
+
+    private final float[] g, rhs;
+    private final int[] stamp;       // g/rhs of a tile are only valid when it matches generation
+    private int generation = 0;
+    private final IntMinHeap open;
+    private final int[] rekeyBuffer;
+
+    private int root = -1, goal = -1, goalX, goalY;
+    public int lastExpansions;      // vertices expanded by the last plan call
+
+    public IncrementalPlanner(NavGrid grid, int radius) {
+        this.grid = grid;
+        this.radius = radius;
+        this.g = new float[grid.size()];
+        this.rhs = new float[grid.size()];
+        this.stamp = new int[grid.size()];
+        this.open = new IntMinHeap(grid.size());
+        this.rekeyBuffer = new int[grid.size()];
+    }
+
+    /**
+     * Plans from the enemy tile to the goal tile, reusing the tree of the previous call when possible,
+     * and writes the path (anchor first) into pathOut.
+     * @return number of tiles written, 0 when no path was found
+     */
+    public int plan(int startX, int startY, int targetX, int targetY, int[] pathOut) {
+        if (!grid.isInBounds(startX, startY) || !grid.isInBounds(targetX, targetY)) return 0;
+        lastExpansions = 0;
+
+        boolean farFromRoot = root < 0
+            || Math.max(Math.abs(grid.xOf(root) - startX), Math.abs(grid.yOf(root) - startY)) > REROOT_DISTANCE;
+        if (farFromRoot) reset(grid.index(startX, startY));
+
+        int newGoal = grid.index(targetX, targetY);
+        if (newGoal != goal) retarget(newGoal);
+
+        computeShortestPath();
+        if (getG(goal) == INF) return 0;
+        return extractPath(pathOut);
+    }
+
+    /**
+     * Switches to grid and repairs the tree after tiles in the rectangle changed their blocked state.
+     * Walkability reaches radius + 1 tiles further through the clearance layer, edges one more.
+     */
+    @Override
+    public void onTilesChanged(NavGrid grid, int minX, int minY, int maxX, int maxY) {
+        this.grid = grid;
+        if (root < 0) return;
+        int margin = radius + 2;
+        int fromX = Math.max(0, minX - margin), toX = Math.min(grid.width - 1, maxX + margin);
+        int fromY = Math.max(0, minY - margin), toY = Math.min(grid.height - 1, maxY + margin);
+        for (int y = fromY; y <= toY; y++)
+            for (int x = fromX; x <= toX; x++)
+                updateVertex(grid.index(x, y));
+    }
+
+    // forgets the old tree and starts a new one at the given tile
+    public void reset(int newRoot) {
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+        open.clear();
+        root = newRoot;
+        setRhs(root, 0f);
+        if (goal >= 0) open.add(root, key(root));
+    }
+
+    // ===========
+    // --- LPA* ---
+    // ===========
+
+    private void retarget(int newGoal) {
+        goal = newGoal;
+        goalX = grid.xOf(goal);
+        goalY = grid.yOf(goal);
+
+        // heuristic changed for every queued vertex, collect them first since updating reorders the heap
+        int size = open.size();
+        if (size == 0 && getG(root) != getRhs(root)) open.add(root, key(root));
+        for (int i = 0; i < size; i++) rekeyBuffer[i] = open.itemAt(i);
+        for (int i = 0; i < size; i++) open.update(rekeyBuffer[i], key(rekeyBuffer[i]));
+    }
+
+    private void computeShortestPath() {
+        int width = grid.width, height = grid.height;
+        // ties with the goal are expanded too, otherwise a vertex on the path may keep an outdated g
+        while (!open.isEmpty() && (open.peekKey() <= key(goal) + KEY_EPSILON || getRhs(goal) != getG(goal))) {
+            int u = open.poll();
+            lastExpansions++;
+            float gu = getG(u), rhsU = getRhs(u);
+
+            if (gu > rhsU) {
+                setG(u, rhsU); // overconsistent, settle it
+            } else {
+                setG(u, INF);  // underconsistent, raise it and let it be recomputed
+                updateVertex(u);
+            }
+
+            int ux = u % width, uy = u / width;
+            for (int dx = -1; dx <= 1; dx++) {
+                int nx = ux + dx;
+                if (nx < 0 || nx >= width) continue;
+                for (int dy = -1; dy <= 1; dy++) {
+                    if (dx == 0 && dy == 0) continue;
+                    int ny = uy + dy;
+                    if (ny < 0 || ny >= height) continue;
+                    updateVertex(ny * width + nx);
+                }
+            }
+        }
+    }
+
+    private void updateVertex(int u) {
+        if (u != root) setRhs(u, bestPredecessorCost(u));
+        if (open.contains(u)) open.remove(u);
+        if (getG(u) != getRhs(u)) open.add(u, key(u));
+    }
+
+    // cheapest g(pred) + c(pred, u), INF when u itself cannot be stood on
+    private float bestPredecessorCost(int u) {
+        if (!isWalkable(u)) return INF;
+        int width = grid.width, height = grid.height;
+        int ux = u % width, uy = u / width;
+        float best = INF;
+        for (int dx = -1; dx <= 1; dx++) {
+            int px = ux + dx;
+            if (px < 0 || px >= width) continue;
+            for (int dy = -1; dy <= 1; dy++) {
+                if (dx == 0 && dy == 0) continue;
+                int py = uy + dy;
+                if (py < 0 || py >= height) continue;
+                int p = py * width + px;
+                if (p != root && !isWalkable(p)) continue;
+                float cost = getG(p) + (dx != 0 && dy != 0 ? AStarEngine.DIAGONAL_COST : 1f);
+                if (cost < best) best = cost;
+            }
+        }
+        return best;
+    }
+
+    private float key(int u) {
+        return Math.min(getG(u), getRhs(u)) + AStarEngine.heuristic(u % grid.width, u / grid.width, goalX, goalY);
+    }
+
+    // follows the cheapest predecessors from the goal back to the anchor
+    private int extractPath(int[] pathOut) {
+        int width = grid.width;
+        int length = 0;
+        int current = goal;
+        pathOut[length++] = current;
+        while (current != root && length < pathOut.length) {
+            int cx = current % width, cy = current / width;
+            int next = -1;
+            float best = INF;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    if (dx == 0 && dy == 0) continue;
+                    int px = cx + dx, py = cy + dy;
+                    if (!grid.isInBounds(px, py)) continue;
+                    int p = py * width + px;
+                    if (p != root && !isWalkable(p)) continue;
+                    float cost = getG(p) + (dx != 0 && dy != 0 ? AStarEngine.DIAGONAL_COST : 1f);
+                    if (cost < best) {
+                        best = cost;
+                        next = p;
+                    }
+                }
+            }
+            if (next < 0 || best == INF) return 0;
+            current = next;
+            pathOut[length++] = current;
+        }
+        if (current != root) return 0;
+
+        // written goal first, turn it around
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            int tmp = pathOut[i];
+            pathOut[i] = pathOut[j];
+            pathOut[j] = tmp;
+        }
+        return length;
+    }
+
+    private boolean isWalkable(int tile) {
+        return grid.clearance[tile] > radius;
+    }
+
+    private float getG(int tile) {
+        return stamp[tile] == generation ? g[tile] : INF;
+    }
+
+    private float getRhs(int tile) {
+        return stamp[tile] == generation ? rhs[tile] : INF;
+    }
+
+    private void touch(int tile) {
+        if (stamp[tile] == generation) return;
+        stamp[tile] = generation;
+        g[tile] = INF;
+        rhs[tile] = INF;
+    }
+
+    private void setG(int tile, float value) {
+        touch(tile);
+        g[tile] = value;
+    }
+
+    private void setRhs(int tile, float value) {
+        touch(tile);
+        rhs[tile] = value;
+    }
+}
@@ -0,0 +1,143 @@
+package com.littleDevil.game;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of int items (tile indices) with a float key per item.
+ * Keeps the heap position of every item so keys can be changed in place (decrease-key).
+ */
+public class IntMinHeap {
+
+    private int[] items;     // heap array of items
+    private int[] positions; // position of each item in the heap, -1 when not queued
+    private float[] keys;    // key of each item
+    private int size;
+
+    public IntMinHeap(int capacity) {
+        items = new int[capacity];
+        positions = new int[capacity];
+        keys = new float[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    // grows the heap so items in [0, capacity) can be queued
+    public void ensureCapacity(int capacity) {
+        if (capacity <= positions.length) return;
+        int oldLength = positions.length;
+        items = Arrays.copyOf(items, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        Arrays.fill(positions, oldLength, capacity, -1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int item) {
+        return positions[item] >= 0;
+    }
+
+    public float keyOf(int item) {
+        return keys[item];
+    }
+
+    // item at a heap position in [0, size), for walking all queued items
+    public int itemAt(int position) {
+        return items[position];
+    }
+
+    public int peek() {
+        return items[0];
+    }
+
+    public float peekKey() {
+        return keys[items[0]];
+    }
+
+    // only touches the queued items, so clearing a small heap stays cheap
+    public void clear() {
+        for (int i = 0; i < size; i++) positions[items[i]] = -1;
+        size = 0;
+    }
+
+    public void add(int item, float key) {
+        keys[item] = key;
+        items[size] = item;
+        positions[item] = size;
+        siftUp(size++);
+    }
+
+    // adds the item or moves it to its new key, in either direction
+    public void update(int item, float key) {
+        int pos = positions[item];
+        if (pos < 0) {
+            add(item, key);
+            return;
+        }
+        float old = keys[item];
+        keys[item] = key;
+        if (key < old) siftUp(pos);
+        else if (key > old) siftDown(pos);
+    }
+
+    public int poll() {
+        int top = items[0];
+        remove(top);
+        return top;
+    }
+
+    public void remove(int item) {
+        int pos = positions[item];
+        if (pos < 0) return;
+        positions[item] = -1;
+        size--;
+        if (pos == size) return;
+
+        int last = items[size];
+        items[pos] = last;
+        positions[last] = pos;
+        siftDown(pos);
+        if (positions[last] == pos) siftUp(pos);
+    }
+
+    private void siftUp(int pos) {
+        int item = items[pos];
+        float key = keys[item];
+        while (pos > 0) {
+            int parentPos = (pos - 1) >>> 1;
+            int parent = items[parentPos];
+            if (keys[parent] <= key) break;
+            items[pos] = parent;
+            positions[parent] = pos;
+            pos = parentPos;
+        }
+        items[pos] = item;
+        positions[item] = pos;
+    }
+
+    private void siftDown(int pos) {
+        int item = items[pos];
+        float key = keys[item];
+        int half = size >>> 1;
+        while (pos < half) {
+            int childPos = 2 * pos + 1;
+            int child = items[childPos];
+            int rightPos = childPos + 1;
+            if (rightPos < size && keys[items[rightPos]] < keys[child]) {
+                childPos = rightPos;
+                child = items[rightPos];
+            }
+            if (key <= keys[child]) break;
+            items[pos] = child;
+            positions[child] = pos;
+            pos = childPos;
+        }
+        items[pos] = item;
+        positions[item] = pos;
+    }
+}
@@ -0,0 +1,239 @@
+package com.littleDevil.game;
+
+/**
+ * Jump Point Search+ on a NavGrid.
+ * Jump distances for all 8 directions are precomputed per tile when the collision grid is generated,
+ * so the search only touches jump points instead of every tile of a long open stretch.
+ * Positive distance = steps to the next jump point, zero or negative = -(steps until a wall).
+ * Diagonal moves may not cut corners, which JPS+ needs for its pruning rules.
+ * When obstacles change at runtime a copy is made for the new grid that only re-sweeps the tiles whose jumps
+ * can run into the changed rectangle, the engine of the old grid stays valid for searches still running on it.
+ */
+public class JpsPlusEngine {
+
+    // same direction order as the flow field: E, NE, N, NW, W, SW, S, SE
+    private static final int[] DIR_X = FlowField.DIR_X;
+    private static final int[] DIR_Y = FlowField.DIR_Y;
+
+    public final NavGrid grid;
+    public final int radius;        // agent clearance the jump distances were built for
+    private final short[] jumps;    // 8 entries per tile
+
+    public JpsPlusEngine(NavGrid grid, int radius) {
+        this.grid = grid;
+        this.radius = radius;
+        this.jumps = new short[grid.size() * 8];
+        precompute();
+    }
+
+    /**
+     * Jump distances for grid, a copy of previous where tiles in the rectangle (inclusive) changed.
+     * Walkability reaches radius + 1 tiles further, jump points look two tiles ahead, and a changed distance
+     * changes every tile behind it in that direction, so each direction is re-swept from the far side
+     * of the rectangle back to the grid border.
+     */
+    public JpsPlusEngine(JpsPlusEngine previous, NavGrid grid, int minX, int minY, int maxX, int maxY) {
+        this.grid = grid;
+        this.radius = previous.radius;
+        this.jumps = previous.jumps.clone();
+
+        int margin = radius + 3;
+        for (int d = 0; d < 8; d += 2) sweep(d, minX - margin, minY - margin, maxX + margin, maxY + margin);
+        for (int d = 1; d < 8; d += 2) sweep(d, minX - margin, minY - margin, maxX + margin, maxY + margin);
+    }
+
+    // ==========================
+    // --- PRECOMPUTED TABLES ---
+    // ==========================
+
+    private void precompute() {
+        // straight distances first, diagonal ones are built on top of them
+        for (int d = 0; d < 8; d += 2) sweep(d);
+        for (int d = 1; d < 8; d += 2) sweep(d);
+    }
+
+    // fills one direction, visiting tiles so that the next tile in that direction is always done first
+    private void sweep(int d) {
+        sweep(d, 0, 0, grid.width - 1, grid.height - 1);
+    }
+
+    // same for the tiles whose jumps in that direction can reach the changed rectangle
+    private void sweep(int d, int minX, int minY, int maxX, int maxY) {
+        int dx = DIR_X[d], dy = DIR_Y[d];
+        // a jump toward +x runs into the rectangle from its left side, so everything left of it is re-swept
+        int x0 = dx > 0 ? 0 : Math.max(0, minX);
+        int x1 = dx < 0 ? grid.width - 1 : Math.min(grid.width - 1, maxX);
+        int y0 = dy > 0 ? 0 : Math.max(0, minY);
+        int y1 = dy < 0 ? grid.height - 1 : Math.min(grid.height - 1, maxY);
+
+        for (int j = y0; j <= y1; j++) {
+            int y = dy > 0 ? y1 + y0 - j : j;
+            for (int i = x0; i <= x1; i++) {
+                int x = dx > 0 ? x1 + x0 - i : i;
+                int slot = grid.index(x, y) * 8 + d;
+                if (!isWalkable(x, y)) {
+                    jumps[slot] = 0;
+                    continue;
+                }
+
+                int nx = x + dx, ny = y + dy;
+                boolean diagonal = (d & 1) == 1;
+                if (!isWalkable(nx, ny) || (diagonal && (!isWalkable(nx, y) || !isWalkable(x, ny)))) {
+                    jumps[slot] = 0; // wall right next to us
+                    continue;
+                }
+
+                int next = grid.index(nx, ny) * 8;
+                if (diagonal) {
+                    // a straight jump point reachable from the next tile makes that tile a diagonal jump point
+                    if (jumps[next + ((d + 7) & 7)] > 0 || jumps[next + ((d + 1) & 7)] > 0) {
+                        jumps[slot] = 1;
+                        continue;
+                    }
+                } else if (isJumpPoint(nx, ny, dx, dy)) {
+                    jumps[slot] = 1;
+                    continue;
+                }
+
+                int further = jumps[next + d];
+                jumps[slot] = (short) (further > 0 ? further + 1 : further - 1);
+            }
+        }
+    }
+
+    // a tile entered straight along (dx, dy) is a jump point when it has a forced neighbor
+    private boolean isJumpPoint(int x, int y, int dx, int dy) {
+        int px = x - dx, py = y - dy; // tile we came from
+        return isWalkable(px, py)
+            && ((isWalkable(x + dy, y + dx) && !isWalkable(px + dy, py + dx))
+            || (isWalkable(x - dy, y - dx) && !isWalkable(px - dy, py - dx)));
+    }
+
+    public boolean isWalkable(int x, int y) {
+        return grid.isInBounds(x, y) && grid.clearance[grid.index(x, y)] > radius;
+    }
+
+    public int getJumpDistance(int x, int y, int direction) {
+        return jumps[grid.index(x, y) * 8 + direction];
+    }
+
+    // ==============
+    // --- SEARCH ---
+    // ==============
+
+    /**
+     * Finds a path between two tiles and writes every tile of it (start first) into pathOut,
+     * so callers get the same per-tile path shape as from AStarEngine.
+     * pathOut has to hold at least grid.size() entries.
+     * @return number of tiles written, 0 when no path was found
+     */
+    public int findPath(int startX, int startY, int goalX, int goalY, int[] pathOut) {
+        if (!grid.isInBounds(startX, startY) || !grid.isInBounds(goalX, goalY)) return 0;
+        if (!isWalkable(goalX, goalY)) return 0;
+
+        int width = grid.width;
+        int start = grid.index(startX, startY);
+        int goal = grid.index(goalX, goalY);
+
+        AStarEngine.SearchState s = AStarEngine.state();
+        int gen = s.begin(grid.size());
+        float[] gCost = s.gCost;
+        int[] parent = s.parent;
+        int[] seen = s.seen;
+        int[] closed = s.closed;
+        byte[] arrival = s.direction;
+        IntMinHeap open = s.open;
+
+        seen[start] = gen;
+        gCost[start] = 0f;
+        parent[start] = -1;
+        arrival[start] = -1;
+        open.add(start, AStarEngine.heuristic(startX, startY, goalX, goalY));
+
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            s.expansions++;
+            if (current == goal) return expandPath(parent, goal, pathOut);
+
+            closed[current] = gen;
+            int cx = current % width;
+            int cy = current / width;
+            int goalDx = goalX - cx, goalDy = goalY - cy;
+            float currentCost = gCost[current];
+
+            int from = arrival[current];
+            int first, count;
+            if (from < 0) { first = 0; count = 8; }                 // start: all directions
+            else if ((from & 1) == 0) { first = from + 6; count = 5; } // straight: sides and forward diagonals
+            else { first = from + 7; count = 3; }                    // diagonal: its two straight parts
+
+            for (int k = 0; k < count; k++) {
+                int d = (first + k) & 7;
+                int dx = DIR_X[d], dy = DIR_Y[d];
+                int jump = jumps[current * 8 + d];
+                boolean diagonal = (d & 1) == 1;
+
+                int steps;
+                int successor;
+                if (!diagonal && isExactlyTowards(goalDx, goalDy, dx, dy)
+                    && Math.abs(goalDx + goalDy) <= Math.abs(jump)) {
+                    // goal lies on this straight line before the next wall
+                    steps = Math.abs(goalDx + goalDy);
+                    successor = goal;
+                } else if (diagonal && Integer.signum(goalDx) == dx && Integer.signum(goalDy) == dy
+                    && (Math.abs(goalDx) <= Math.abs(jump) || Math.abs(goalDy) <= Math.abs(jump))) {
+                    // stop where the goal row or column is crossed, a straight jump takes it from there
+                    steps = Math.min(Math.abs(goalDx), Math.abs(goalDy));
+                    successor = grid.index(cx + dx * steps, cy + dy * steps);
+                } else if (jump > 0) {
+                    steps = jump;
+                    successor = grid.index(cx + dx * steps, cy + dy * steps);
+                } else {
+                    continue;
+                }
+
+                if (closed[successor] == gen) continue;
+                float newCost = currentCost + steps * (diagonal ? AStarEngine.DIAGONAL_COST : 1f);
+                if (seen[successor] != gen || newCost < gCost[successor]) {
+                    seen[successor] = gen;
+                    gCost[successor] = newCost;
+                    parent[successor] = current;
+                    arrival[successor] = (byte) d;
+                    int sx = successor % width, sy = successor / width;
+                    open.update(successor, newCost + AStarEngine.heuristic(sx, sy, goalX, goalY));
+                }
+            }
+        }
+
+        return 0; // no path found
+    }
+
+    private static boolean isExactlyTowards(int goalDx, int goalDy, int dx, int dy) {
+        return dx == 0 ? goalDx == 0 && Integer.signum(goalDy) == dy : goalDy == 0 && Integer.signum(goalDx) == dx;
+    }
+
+    // turns the chain of jump points into the full list of tiles between them
+    private int expandPath(int[] parent, int goal, int[] pathOut) {
+        int width = grid.width;
+        int length = 1;
+        for (int n = goal; parent[n] != -1; n = parent[n]) {
+            int p = parent[n];
+            length += Math.max(Math.abs(n % width - p % width), Math.abs(n / width - p / width));
+        }
+
+        int i = length;
+        pathOut[--i] = goal;
+        for (int n = goal; parent[n] != -1; n = parent[n]) {
+            int p = parent[n];
+            int stepX = Integer.signum(p % width - n % width);
+            int stepY = Integer.signum(p / width - n / width);
+            int x = n % width, y = n / width;
+            while (x != p % width || y != p / width) {
+                x += stepX;
+                y += stepY;
+                pathOut[--i] = y * width + x;
+            }
+        }
+        return length;
+    }
+}
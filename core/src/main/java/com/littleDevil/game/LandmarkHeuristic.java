@@ -0,0 +1,221 @@
+package com.littleDevil.game;
+
+import java.util.Arrays;
+
+/**
+ * ALT heuristic: exact path distances from a few landmark tiles, built once when the grid is generated.
+ * By the triangle inequality |d(L, n) - d(L, goal)| never overestimates the distance from n to the goal,
+ * and unlike the straight-line distance it knows about the walls in between, so A* stops flooding
+ * the area behind the altar walls and fences.
+ * Distances are stored in fixed point (1/SCALE tiles) in one short table per landmark.
+ * Blocking tiles only makes paths longer, so the old tables stay a valid (just weaker) bound on the new grid.
+ * When tiles became walkable the tables are dropped and built again over the next frames, one landmark per
+ * buildStep; requests in the ASTAR_LANDMARKS mode use plain A* until isReady.
+ */
+public class LandmarkHeuristic {
+
+    public static final int DEFAULT_LANDMARKS = 16;
+    private static final int SCALE = 16;              // table units per tile
+    private static final short UNREACHABLE = Short.MAX_VALUE;
+    private static final int MAX_STORED = Short.MAX_VALUE - 1;
+
+    public final NavGrid grid;
+    public final int radius;  // agent clearance the distances were built for
+    // set once the build is done, never changed after; only handed to path workers when ready
+    private int[] landmarks = new int[0];
+    private short[][] distances = new short[0][]; // [landmark][tile]
+    private boolean ready = false;
+
+    private final float[] dijkstra; // build scratch
+    private final IntMinHeap open;
+
+    // state of a build in progress
+    private final int count;
+    private int[] picked;
+    private short[][] tables;
+    private float[] nearest; // distance to the closest landmark picked so far, null before the first step
+    private int found = 0, next = -1;
+
+    public LandmarkHeuristic(NavGrid grid, int radius) {
+        this(grid, radius, DEFAULT_LANDMARKS);
+    }
+
+    public LandmarkHeuristic(NavGrid grid, int radius, int count) {
+        this(grid, radius, count, true);
+    }
+
+    // with build false the tables stay empty until buildStep finished them
+    private LandmarkHeuristic(NavGrid grid, int radius, int count, boolean build) {
+        this.grid = grid;
+        this.radius = radius;
+        this.count = count;
+        this.dijkstra = new float[grid.size()];
+        this.open = new IntMinHeap(grid.size());
+        this.picked = new int[count];
+        this.tables = new short[count][];
+        if (build) {
+            while (!buildStep()) {
+                // every step adds a landmark
+            }
+        }
+    }
+
+    // same tables bound to another grid, see forChangedGrid
+    private LandmarkHeuristic(LandmarkHeuristic previous, NavGrid grid) {
+        this.grid = grid;
+        this.radius = previous.radius;
+        this.count = previous.count;
+        this.landmarks = previous.landmarks;
+        this.distances = previous.distances;
+        this.ready = true;
+        this.dijkstra = previous.dijkstra;
+        this.open = previous.open;
+    }
+
+    /**
+     * Heuristic for grid, a copy of this one's grid where tiles in the rectangle (inclusive) changed.
+     * Keeps the tables when no tile in reach of the rectangle became walkable for the radius, otherwise
+     * returns an empty heuristic to be built with buildStep, as it does while this one is still being built.
+     */
+    public LandmarkHeuristic forChangedGrid(NavGrid grid, int minX, int minY, int maxX, int maxY) {
+        int rebuildCount = Math.max(count, DEFAULT_LANDMARKS);
+        if (!ready) return new LandmarkHeuristic(grid, radius, rebuildCount, false);
+        int margin = radius + 1;
+        for (int y = Math.max(0, minY - margin); y <= Math.min(grid.height - 1, maxY + margin); y++) {
+            for (int x = Math.max(0, minX - margin); x <= Math.min(grid.width - 1, maxX + margin); x++) {
+                int tile = grid.index(x, y);
+                if (grid.fits(tile, radius) && !this.grid.fits(tile, radius)) {
+                    return new LandmarkHeuristic(grid, radius, rebuildCount, false);
+                }
+            }
+        }
+        return new LandmarkHeuristic(this, grid);
+    }
+
+    /**
+     * Lower bound of the path distance (in tiles) between two tiles, 0 when no landmark knows both.
+     */
+    public float estimate(int tile, int goal) {
+        int best = 0;
+        for (short[] table : distances) {
+            int a = table[tile], b = table[goal];
+            if (a == UNREACHABLE || b == UNREACHABLE) continue;
+            best = Math.max(best, Math.abs(a - b));
+        }
+        return Math.max(0, best - 1) / (float) SCALE; // stored values are rounded down, keep it a lower bound
+    }
+
+    /**
+     * Continues a build: the first call searches from any walkable tile, every call picks one landmark,
+     * the tile farthest from all landmarks picked so far, and fills its table. Call on the render thread.
+     * @return true once the tables are complete
+     */
+    public boolean buildStep() {
+        if (ready) return true;
+        if (nearest == null) {
+            int first = firstWalkableTile();
+            if (first < 0) return finishBuild();
+            nearest = new float[grid.size()];
+            Arrays.fill(nearest, Float.MAX_VALUE);
+            run(first);
+            next = farthest(dijkstra);
+        }
+        if (found < count && next >= 0) {
+            run(next);
+            picked[found] = next;
+            tables[found++] = pack(dijkstra);
+            for (int i = 0; i < nearest.length; i++) nearest[i] = Math.min(nearest[i], dijkstra[i]);
+            next = farthest(nearest);
+        }
+        return found < count && next >= 0 ? false : finishBuild();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int getLandmarkCount() {
+        return landmarks.length;
+    }
+
+    public int getLandmark(int i) {
+        return landmarks[i];
+    }
+
+    // ========================
+    // --- HELPER FUNCTIONS ---
+    // ========================
+
+    // dijkstra over the tiles an agent of the radius can stand on, same step costs as AStarEngine
+    private void run(int source) {
+        int width = grid.width, height = grid.height;
+        Arrays.fill(dijkstra, Float.MAX_VALUE);
+        open.clear();
+        dijkstra[source] = 0f;
+        open.add(source, 0f);
+
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            int cx = current % width, cy = current / width;
+            float currentDistance = dijkstra[current];
+
+            for (int dx = -1; dx <= 1; dx++) {
+                int nx = cx + dx;
+                if (nx < 0 || nx >= width) continue;
+                for (int dy = -1; dy <= 1; dy++) {
+                    if (dx == 0 && dy == 0) continue;
+                    int ny = cy + dy;
+                    if (ny < 0 || ny >= height) continue;
+
+                    int neighbor = ny * width + nx;
+                    if (!grid.fits(neighbor, radius)) continue;
+                    float newDistance = currentDistance + (dx != 0 && dy != 0 ? AStarEngine.DIAGONAL_COST : 1f);
+                    if (newDistance < dijkstra[neighbor]) {
+                        dijkstra[neighbor] = newDistance;
+                        open.update(neighbor, newDistance);
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean finishBuild() {
+        landmarks = Arrays.copyOf(picked, found);
+        distances = Arrays.copyOf(tables, found);
+        picked = null;
+        tables = null;
+        nearest = null;
+        ready = true;
+        return true;
+    }
+
+    private short[] pack(float[] distance) {
+        short[] table = new short[distance.length];
+        for (int i = 0; i < distance.length; i++) {
+            if (distance[i] == Float.MAX_VALUE) table[i] = UNREACHABLE;
+            else table[i] = (short) Math.min(MAX_STORED, (int) (distance[i] * SCALE));
+        }
+        return table;
+    }
+
+    // reachable walkable tile with the largest value, -1 when there is none
+    private int farthest(float[] values) {
+        int best = -1;
+        float bestValue = -1f;
+        for (int i = 0; i < values.length; i++) {
+            if (dijkstra[i] == Float.MAX_VALUE || values[i] == Float.MAX_VALUE || !grid.fits(i, radius)) continue;
+            if (values[i] > bestValue) {
+                bestValue = values[i];
+                best = i;
+            }
+        }
+        return bestValue > 0f ? best : -1;
+    }
+
+    private int firstWalkableTile() {
+        for (int i = 0; i < grid.size(); i++) {
+            if (grid.fits(i, radius)) return i;
+        }
+        return -1;
+    }
+}
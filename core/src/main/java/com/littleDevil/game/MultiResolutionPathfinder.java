@@ -0,0 +1,149 @@
+package com.littleDevil.game;
+
+/**
+ * Plans long paths on a coarse copy of the NavGrid (one cell per CELL_SIZE x CELL_SIZE tiles).
+ * The coarse search covers the long middle part, which is drawn as straight lines between cell centers;
+ * the first and last few cells are searched on the fine grid, so the path still starts at the enemy's
+ * tile and ends exactly at the goal. Short requests and requests the coarse layer cannot answer
+ * (narrow passages disappear when downsampling) fall back to plain A* on the fine grid.
+ * Scratch arrays are kept per thread, so path workers can use it.
+ */
+public class MultiResolutionPathfinder {
+
+    public static final int CELL_SIZE = 4;        // fine tiles per coarse cell side (16 px with 4 px tiles)
+    public static final int FINE_END_CELLS = 2;   // coarse cells at each end that are searched on the fine grid
+    private static final int NEAR_DISTANCE = 4 * CELL_SIZE; // tiles, closer requests stay on the fine grid
+
+    public final NavGrid grid;
+    public final NavGrid coarse;
+    public final int radius;
+
+    private final AStarEngine fineEngine;
+    private final AStarEngine coarseEngine;
+    private final ThreadLocal<int[][]> buffers;
+    private final ThreadLocal<int[]> expansions = ThreadLocal.withInitial(() -> new int[1]);
+
+    public MultiResolutionPathfinder(NavGrid grid, int radius) {
+        this(grid, grid.downsample(CELL_SIZE, radius), radius);
+    }
+
+    /**
+     * Pathfinder for grid, a copy of previous's grid where tiles in the rectangle (inclusive) changed:
+     * only the coarse cells over the rectangle are downsampled again.
+     */
+    public MultiResolutionPathfinder(MultiResolutionPathfinder previous, NavGrid grid, int minX, int minY, int maxX, int maxY) {
+        this(grid, previous.coarse.withDownsampledRegion(grid, CELL_SIZE, previous.radius, minX, minY, maxX, maxY), previous.radius);
+    }
+
+    private MultiResolutionPathfinder(NavGrid grid, NavGrid coarse, int radius) {
+        this.grid = grid;
+        this.radius = radius;
+        this.coarse = coarse;
+        this.fineEngine = new AStarEngine(grid);
+        this.coarseEngine = new AStarEngine(coarse);
+        // coarse path, fine segment
+        this.buffers = ThreadLocal.withInitial(() -> new int[][] { new int[coarse.size()], new int[grid.size()] });
+    }
+
+    /**
+     * Finds a path and writes every tile of it (start first) into pathOut, like AStarEngine.findPath.
+     * pathOut has to hold at least grid.size() entries.
+     * @return number of tiles written, 0 when no path was found
+     */
+    public int findPath(int startX, int startY, int goalX, int goalY, int[] pathOut) {
+        int[] count = expansions.get();
+        count[0] = 0;
+        if (!grid.isInBounds(startX, startY) || !grid.isInBounds(goalX, goalY)) return 0;
+        if (Math.max(Math.abs(goalX - startX), Math.abs(goalY - startY)) > NEAR_DISTANCE) {
+            int length = findCoarsePath(startX, startY, goalX, goalY, pathOut, count);
+            if (length > 0) return length;
+        }
+        int length = fineEngine.findPath(startX, startY, goalX, goalY, radius, pathOut);
+        count[0] += AStarEngine.lastExpansionCount();
+        return length;
+    }
+
+    // coarse and fine expansions of the last findPath on the calling thread
+    public int lastExpansionCount() {
+        return expansions.get()[0];
+    }
+
+    // returns 0 when the coarse layer has no usable path, the caller then searches the fine grid
+    private int findCoarsePath(int startX, int startY, int goalX, int goalY, int[] pathOut, int[] count) {
+        int startCell = nearestWalkableCell(startX / CELL_SIZE, startY / CELL_SIZE);
+        int goalCell = nearestWalkableCell(goalX / CELL_SIZE, goalY / CELL_SIZE);
+        if (startCell < 0 || goalCell < 0) return 0;
+
+        int[][] scratch = buffers.get();
+        int[] cells = scratch[0];
+        int[] segment = scratch[1];
+        int cellCount = coarseEngine.findPath(coarse.xOf(startCell), coarse.yOf(startCell),
+            coarse.xOf(goalCell), coarse.yOf(goalCell), 0, cells);
+        count[0] += AStarEngine.lastExpansionCount();
+        int headEnd = FINE_END_CELLS, tailStart = cellCount - 1 - FINE_END_CELLS;
+        if (tailStart <= headEnd) return 0; // too short to be worth it
+
+        // fine search to the center of the first cell of the middle part
+        int headGoal = centerTile(cells[headEnd]);
+        int length = fineEngine.findPath(startX, startY, grid.xOf(headGoal), grid.yOf(headGoal), radius, segment);
+        count[0] += AStarEngine.lastExpansionCount();
+        if (length == 0) return 0;
+        System.arraycopy(segment, 0, pathOut, 0, length);
+
+        // lines between the centers of neighboring cells that stay inside the two cells, all their tiles are walkable
+        for (int i = headEnd + 1; i <= tailStart; i++) {
+            int from = centerTile(cells[i - 1]), to = centerTile(cells[i]);
+            int x = grid.xOf(from), y = grid.yOf(from);
+            int toX = grid.xOf(to), toY = grid.yOf(to);
+            while (x != toX || y != toY) {
+                int stepX = Integer.signum(toX - x), stepY = Integer.signum(toY - y);
+                // the center is not in the middle of an even cell, so a diagonal can reach a corner cell first
+                if (stepX != 0 && stepY != 0 && !isInCells(x + stepX, y + stepY, cells[i - 1], cells[i])) {
+                    if (isInCells(x + stepX, y, cells[i - 1], cells[i])) stepY = 0;
+                    else stepX = 0;
+                }
+                x += stepX;
+                y += stepY;
+                pathOut[length++] = grid.index(x, y);
+            }
+        }
+
+        // fine search from the center of the last middle cell to the goal
+        int tailFrom = centerTile(cells[tailStart]);
+        int tailLength = fineEngine.findPath(grid.xOf(tailFrom), grid.yOf(tailFrom), goalX, goalY, radius, segment);
+        count[0] += AStarEngine.lastExpansionCount();
+        if (tailLength == 0 || length + tailLength - 1 > pathOut.length) return 0;
+        System.arraycopy(segment, 1, pathOut, length, tailLength - 1);
+        return length + tailLength - 1;
+    }
+
+    // the cell itself or a walkable cell around it, -1 when there is none
+    private int nearestWalkableCell(int cellX, int cellY) {
+        for (int ring = 0; ring <= 1; ring++) {
+            for (int dy = -ring; dy <= ring; dy++) {
+                for (int dx = -ring; dx <= ring; dx++) {
+                    int x = cellX + dx, y = cellY + dy;
+                    if (coarse.isInBounds(x, y) && coarse.fits(coarse.index(x, y), 0)) return coarse.index(x, y);
+                }
+            }
+        }
+        return -1;
+    }
+
+    // whether the fine tile lies in one of the two coarse cells
+    private boolean isInCells(int x, int y, int cellA, int cellB) {
+        int cell = coarse.index(x / CELL_SIZE, y / CELL_SIZE);
+        return cell == cellA || cell == cellB;
+    }
+
+    // fine tile in the middle of a coarse cell, inside the grid for the partial cells on the border
+    private int centerTile(int cell) {
+        int x = Math.min(coarse.xOf(cell) * CELL_SIZE + CELL_SIZE / 2, grid.width - 1);
+        int y = Math.min(coarse.yOf(cell) * CELL_SIZE + CELL_SIZE / 2, grid.height - 1);
+        return grid.index(x, y);
+    }
+
+    public int getCellCount() {
+        return coarse.size();
+    }
+}
@@ -0,0 +1,260 @@
+package com.littleDevil.game;
+
+/**
+ * Flat, row-major blocked layer used by the pathfinders.
+ * Tile (x, y) lives at index y * width + x, so a search can work on plain ints.
+ * Next to the blocked flags it keeps a clearance layer: the chebyshev distance (in tiles)
+ * from every tile to the nearest blocked tile, so "can an agent of radius r stand here" is one lookup.
+ * A published grid is never changed, runtime obstacles produce a repaired copy (withTiles).
+ */
+public class NavGrid {
+
+    public static final int MAX_CLEARANCE = 127; // clearance is stored in a byte
+    public static final int REPAIR_MARGIN = 16;  // clearance stays exact up to this many tiles after a local repair
+
+    public final int width, height;
+    public final boolean[] blocked;
+    public final byte[] clearance; // 0 on blocked tiles, capped at MAX_CLEARANCE
+
+    public NavGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.blocked = new boolean[width * height];
+        this.clearance = new byte[width * height];
+    }
+
+    /**
+     * Builds a grid whose blocked tiles are the tiles of the GameWorld with the flag set
+     * @param flag a single TileLayer flag
+     */
+    public static NavGrid fromTiles(TileLayer tiles, int flag) {
+        NavGrid grid = new NavGrid(tiles.width, tiles.height);
+        for (int i = tiles.nextTile(flag, 0); i >= 0; i = tiles.nextTile(flag, i + 1)) grid.blocked[i] = true;
+        grid.computeClearance();
+        return grid;
+    }
+
+    /**
+     * Copy of this grid whose blocked flags in the rectangle (inclusive) come from the tiles with the flag set.
+     * Only the clearance within REPAIR_MARGIN of the rectangle is recomputed: every value up to REPAIR_MARGIN
+     * is exact, larger ones further away may be stale but stay above REPAIR_MARGIN, far beyond any agent radius.
+     */
+    public NavGrid withTiles(TileLayer tiles, int flag, int minX, int minY, int maxX, int maxY) {
+        NavGrid copy = copy();
+        minX = Math.max(0, minX);
+        minY = Math.max(0, minY);
+        maxX = Math.min(width - 1, maxX);
+        maxY = Math.min(height - 1, maxY);
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) copy.blocked[y * width + x] = tiles.has(x, y, flag);
+        }
+        copy.repairClearance(minX, minY, maxX, maxY);
+        return copy;
+    }
+
+    /**
+     * Copy of this coarse grid (made by fine.downsample) with the cells over a changed rectangle of fine tiles
+     * downsampled again from the fine grid.
+     */
+    public NavGrid withDownsampledRegion(NavGrid fine, int factor, int radius, int minX, int minY, int maxX, int maxY) {
+        // walkability for the radius changes up to radius tiles around the rectangle
+        int fromX = Math.max(0, (minX - radius - 1) / factor), toX = Math.min(width - 1, (maxX + radius + 1) / factor);
+        int fromY = Math.max(0, (minY - radius - 1) / factor), toY = Math.min(height - 1, (maxY + radius + 1) / factor);
+        NavGrid copy = copy();
+        for (int cy = fromY; cy <= toY; cy++) {
+            for (int cx = fromX; cx <= toX; cx++) {
+                boolean cellBlocked = false;
+                for (int y = cy * factor; y < Math.min(fine.height, (cy + 1) * factor) && !cellBlocked; y++) {
+                    for (int x = cx * factor; x < Math.min(fine.width, (cx + 1) * factor); x++) {
+                        if (fine.clearance[y * fine.width + x] <= radius) {
+                            cellBlocked = true;
+                            break;
+                        }
+                    }
+                }
+                copy.blocked[cy * width + cx] = cellBlocked;
+            }
+        }
+        copy.repairClearance(fromX, fromY, toX, toY);
+        return copy;
+    }
+
+    private NavGrid copy() {
+        NavGrid copy = new NavGrid(width, height);
+        System.arraycopy(blocked, 0, copy.blocked, 0, blocked.length);
+        System.arraycopy(clearance, 0, copy.clearance, 0, clearance.length);
+        return copy;
+    }
+
+    /**
+     * Recomputes the clearance within REPAIR_MARGIN of the rectangle after its blocked flags changed.
+     * The same two chamfer sweeps as computeClearance, the tiles around the window act as fixed sources.
+     */
+    private void repairClearance(int minX, int minY, int maxX, int maxY) {
+        int x0 = Math.max(0, minX - REPAIR_MARGIN), x1 = Math.min(width - 1, maxX + REPAIR_MARGIN);
+        int y0 = Math.max(0, minY - REPAIR_MARGIN), y1 = Math.min(height - 1, maxY + REPAIR_MARGIN);
+
+        for (int y = y0; y <= y1; y++) {
+            for (int x = x0; x <= x1; x++) {
+                int i = y * width + x;
+                if (blocked[i]) {
+                    clearance[i] = 0;
+                    continue;
+                }
+                int best = MAX_CLEARANCE;
+                if (x > 0) best = Math.min(best, clearance[i - 1] + 1);
+                if (y > 0) {
+                    int below = i - width;
+                    best = Math.min(best, clearance[below] + 1);
+                    if (x > 0) best = Math.min(best, clearance[below - 1] + 1);
+                    if (x < width - 1) best = Math.min(best, clearance[below + 1] + 1);
+                }
+                if (x == x1 && x < width - 1) best = Math.min(best, clearance[i + 1] + 1); // source right of the window
+                clearance[i] = (byte) best;
+            }
+        }
+
+        for (int y = y1; y >= y0; y--) {
+            for (int x = x1; x >= x0; x--) {
+                int i = y * width + x;
+                int best = clearance[i];
+                if (best == 0) continue;
+                if (x < width - 1) best = Math.min(best, clearance[i + 1] + 1);
+                if (y < height - 1) {
+                    int above = i + width;
+                    best = Math.min(best, clearance[above] + 1);
+                    if (x < width - 1) best = Math.min(best, clearance[above + 1] + 1);
+                    if (x > 0) best = Math.min(best, clearance[above - 1] + 1);
+                }
+                if (x == x0 && x > 0) best = Math.min(best, clearance[i - 1] + 1); // source left of the window
+                clearance[i] = (byte) best;
+            }
+        }
+    }
+
+    /**
+     * Recomputes the clearance layer from the blocked flags.
+     * Two sweeps of an 8-neighbor chamfer with unit weights give the exact chebyshev distance.
+     * Tiles outside the grid do not count as obstacles.
+     */
+    public void computeClearance() {
+        // forward pass: left, bottom-left, bottom, bottom-right neighbors
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int i = y * width + x;
+                if (blocked[i]) {
+                    clearance[i] = 0;
+                    continue;
+                }
+                int best = MAX_CLEARANCE;
+                if (x > 0) best = Math.min(best, clearance[i - 1] + 1);
+                if (y > 0) {
+                    int below = i - width;
+                    best = Math.min(best, clearance[below] + 1);
+                    if (x > 0) best = Math.min(best, clearance[below - 1] + 1);
+                    if (x < width - 1) best = Math.min(best, clearance[below + 1] + 1);
+                }
+                clearance[i] = (byte) best;
+            }
+        }
+
+        // backward pass: right, top-right, top, top-left neighbors
+        for (int y = height - 1; y >= 0; y--) {
+            for (int x = width - 1; x >= 0; x--) {
+                int i = y * width + x;
+                int best = clearance[i];
+                if (best == 0) continue;
+                if (x < width - 1) best = Math.min(best, clearance[i + 1] + 1);
+                if (y < height - 1) {
+                    int above = i + width;
+                    best = Math.min(best, clearance[above] + 1);
+                    if (x < width - 1) best = Math.min(best, clearance[above + 1] + 1);
+                    if (x > 0) best = Math.min(best, clearance[above - 1] + 1);
+                }
+                clearance[i] = (byte) best;
+            }
+        }
+    }
+
+    /**
+     * Builds a coarse grid with one cell per factor x factor tiles.
+     * Conservative: a cell is only walkable when an agent of the given radius fits on every tile of it,
+     * so walking between the centers of two neighboring walkable cells never leaves walkable tiles.
+     */
+    public NavGrid downsample(int factor, int radius) {
+        NavGrid coarse = new NavGrid((width + factor - 1) / factor, (height + factor - 1) / factor);
+        for (int y = 0; y < height; y++) {
+            int row = (y / factor) * coarse.width;
+            for (int x = 0; x < width; x++) {
+                if (clearance[y * width + x] <= radius) coarse.blocked[row + x / factor] = true;
+            }
+        }
+        coarse.computeClearance();
+        return coarse;
+    }
+
+    public int size() {
+        return blocked.length;
+    }
+
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    public int xOf(int index) {
+        return index % width;
+    }
+
+    public int yOf(int index) {
+        return index / width;
+    }
+
+    public boolean isInBounds(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    // true when a blocked tile lies within radius tiles of (tileX, tileY)
+    public boolean isBlocked(int tileX, int tileY, int radius) {
+        return clearance[tileY * width + tileX] <= radius;
+    }
+
+    // true when an agent of the given radius (in tiles) can stand on the tile
+    public boolean fits(int index, int radius) {
+        return clearance[index] > radius;
+    }
+
+    /**
+     * True when an agent of the given radius can walk in a straight line between the centers of two tiles.
+     * Walks every tile the line touches (supercover); where the line passes exactly through a corner
+     * both tiles next to the corner have to fit as well, so the collision box never clips one.
+     */
+    public boolean hasLineOfSight(int x0, int y0, int x1, int y1, int radius) {
+        if (!isInBounds(x0, y0) || !isInBounds(x1, y1)) return false;
+
+        int nx = Math.abs(x1 - x0), ny = Math.abs(y1 - y0);
+        int stepX = x1 > x0 ? 1 : -1, stepY = y1 > y0 ? 1 : -1;
+        int x = x0, y = y0;
+        if (clearance[y * width + x] <= radius) return false;
+
+        for (int ix = 0, iy = 0; ix < nx || iy < ny; ) {
+            // which tile border the line crosses next, compared without division
+            int decision = (1 + 2 * ix) * ny - (1 + 2 * iy) * nx;
+            if (decision == 0) {
+                if (clearance[y * width + x + stepX] <= radius) return false;
+                if (clearance[(y + stepY) * width + x] <= radius) return false;
+                x += stepX;
+                y += stepY;
+                ix++;
+                iy++;
+            } else if (decision < 0) {
+                x += stepX;
+                ix++;
+            } else {
+                y += stepY;
+                iy++;
+            }
+            if (clearance[y * width + x] <= radius) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,506 @@
+package com.littleDevil.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Navigation mesh built from the CollisionObject rectangles of the GameWorld.
+ * Every blocking object is grown by the agent's size, and the space left over is cut into convex
+ * rectangles: the map is split into vertical slabs at every obstacle edge, the free y ranges of a slab
+ * become rectangles, and rectangles with the same y range in neighboring slabs are merged.
+ * Neighboring rectangles share a vertical portal. A request runs A* over the rectangles and pulls the
+ * path straight through the portals with the funnel algorithm, so a cross-map path is a handful of corners.
+ * Not thread-safe, it keeps its search arrays between requests.
+ */
+public class NavMesh {
+
+    private static final float EPSILON = 0.01f;
+
+    public final NavGrid grid; // grid the mesh was built next to, for the tile lookup
+    public final int radius;   // agent clearance in tiles, obstacles are grown by radius tiles
+    public final int tileSize;
+
+    // rectangles in pixels
+    private final float[] minX, minY, maxX, maxY;
+    private final int rectCount;
+
+    // portals per rectangle: edges edgeStart[r] until edgeStart[r + 1]
+    private final int[] edgeStart;
+    private final int[] edgeTarget;
+    private final float[] portalX, portalMinY, portalMaxY;
+
+    private final int[] rectAtTile; // rectangle holding the tile center, -1 when inside an obstacle
+
+    // search scratch
+    private final float[] gCost, entryX, entryY;
+    private final int[] parent, parentEdge, seen, closed;
+    private int generation = 0;
+    private final IntMinHeap open;
+    private final int[] rectPath;
+    private final float[] portals; // left x, left y, right x, right y per portal, start and goal included
+    private float[] points = new float[0];
+    public int lastExpansions; // rectangles expanded by the last search
+
+    private NavMesh(NavGrid grid, int radius, int tileSize, List<float[]> rects) {
+        this.grid = grid;
+        this.radius = radius;
+        this.tileSize = tileSize;
+
+        rectCount = rects.size();
+        minX = new float[rectCount];
+        minY = new float[rectCount];
+        maxX = new float[rectCount];
+        maxY = new float[rectCount];
+        for (int i = 0; i < rectCount; i++) {
+            float[] r = rects.get(i);
+            minX[i] = r[0];
+            minY[i] = r[1];
+            maxX[i] = r[2];
+            maxY[i] = r[3];
+        }
+
+        // portals: right edge of one rectangle touching the left edge of another
+        edgeStart = new int[rectCount + 1];
+        List<int[]> pairs = new ArrayList<>();
+        for (int a = 0; a < rectCount; a++) {
+            for (int b = 0; b < rectCount; b++) {
+                if (a == b) continue;
+                boolean touching = Math.abs(maxX[a] - minX[b]) < EPSILON || Math.abs(minX[a] - maxX[b]) < EPSILON;
+                if (touching && Math.min(maxY[a], maxY[b]) - Math.max(minY[a], minY[b]) > EPSILON) {
+                    pairs.add(new int[] { a, b });
+                }
+            }
+            edgeStart[a + 1] = pairs.size();
+        }
+        edgeTarget = new int[pairs.size()];
+        portalX = new float[pairs.size()];
+        portalMinY = new float[pairs.size()];
+        portalMaxY = new float[pairs.size()];
+        for (int e = 0; e < pairs.size(); e++) {
+            int a = pairs.get(e)[0], b = pairs.get(e)[1];
+            edgeTarget[e] = b;
+            portalX[e] = Math.abs(maxX[a] - minX[b]) < EPSILON ? maxX[a] : minX[a];
+            portalMinY[e] = Math.max(minY[a], minY[b]);
+            portalMaxY[e] = Math.min(maxY[a], maxY[b]);
+        }
+
+        rectAtTile = new int[grid.size()];
+        Arrays.fill(rectAtTile, -1);
+        for (int i = 0; i < rectCount; i++) {
+            int x0 = (int) Math.ceil(minX[i] / tileSize - 0.5f), x1 = (int) Math.floor(maxX[i] / tileSize - 0.5f);
+            int y0 = (int) Math.ceil(minY[i] / tileSize - 0.5f), y1 = (int) Math.floor(maxY[i] / tileSize - 0.5f);
+            for (int y = Math.max(0, y0); y <= Math.min(grid.height - 1, y1); y++) {
+                for (int x = Math.max(0, x0); x <= Math.min(grid.width - 1, x1); x++) {
+                    rectAtTile[grid.index(x, y)] = i;
+                }
+            }
+        }
+
+        gCost = new float[rectCount];
+        entryX = new float[rectCount];
+        entryY = new float[rectCount];
+        parent = new int[rectCount];
+        parentEdge = new int[rectCount];
+        seen = new int[rectCount];
+        closed = new int[rectCount];
+        open = new IntMinHeap(rectCount);
+        rectPath = new int[rectCount];
+        portals = new float[(rectCount + 1) * 4];
+    }
+
+    // ================
+    // --- BUILDING ---
+    // ================
+
+    /**
+     * Builds the mesh for an agent needing radius tiles of clearance.
+     * Obstacles are the world borders and obstacles (CollisionObject types 1 and 2), taken at the tiles
+     * they mark on the grid, grown by radius tiles plus half a tile so tile centers along the path stay clear.
+     */
+    public static NavMesh build(GameWorld world, int radius) {
+        int tileSize = world.tileSize;
+        float grow = radius * tileSize + tileSize / 2f;
+        float domainMaxX = world.widthInTiles * tileSize - grow, domainMaxY = world.heightInTiles * tileSize - grow;
+
+        List<float[]> rects = new ArrayList<>();
+        decompose(obstacles(world, grow), grow, domainMaxX, grow, domainMaxY, new ArrayList<>(), rects);
+        return new NavMesh(world.navGrid, radius, tileSize, rects);
+    }
+
+    /**
+     * Mesh for the world after the tiles in the rectangle (inclusive) changed, previous being the mesh from before.
+     * Only the slabs an obstacle grown around the rectangle can reach are cut again; the rectangles outside keep
+     * their shape, those crossing the border are clipped to it and merged with the new ones again where they line up.
+     */
+    public static NavMesh repair(NavMesh previous, GameWorld world, int minX, int minY, int maxX, int maxY) {
+        int tileSize = previous.tileSize;
+        float grow = previous.radius * tileSize + tileSize / 2f;
+        float domainMaxX = world.widthInTiles * tileSize - grow, domainMaxY = world.heightInTiles * tileSize - grow;
+        float fromX = Math.max(grow, minX * tileSize - grow), toX = Math.min(domainMaxX, (maxX + 1) * tileSize + grow);
+
+        List<float[]> rects = new ArrayList<>();
+        List<float[]> left = new ArrayList<>(), right = new ArrayList<>(); // kept rectangles touching the slabs
+        for (int i = 0; i < previous.rectCount; i++) {
+            float x0 = previous.minX[i], y0 = previous.minY[i], x1 = previous.maxX[i], y1 = previous.maxY[i];
+            if (toX - fromX < EPSILON) {
+                rects.add(new float[] { x0, y0, x1, y1 });
+                continue;
+            }
+            if (x0 < fromX - EPSILON) {
+                float[] r = { x0, y0, Math.min(x1, fromX), y1 };
+                rects.add(r);
+                if (x1 > fromX - EPSILON) left.add(r);
+            }
+            if (x1 > toX + EPSILON) {
+                float[] r = { Math.max(x0, toX), y0, x1, y1 };
+                rects.add(r);
+                if (x0 < toX + EPSILON) right.add(r);
+            }
+        }
+
+        if (toX - fromX >= EPSILON) {
+            List<float[]> open = decompose(obstacles(world, grow), fromX, toX, grow, domainMaxY, left, rects);
+            for (float[] r : right) {
+                for (float[] o : open) {
+                    if (Math.abs(o[2] - r[0]) < EPSILON && Math.abs(o[1] - r[1]) < EPSILON && Math.abs(o[3] - r[3]) < EPSILON) {
+                        o[2] = r[2];
+                        rects.remove(r);
+                        break;
+                    }
+                }
+            }
+        }
+        return new NavMesh(world.navGrid, previous.radius, tileSize, rects);
+    }
+
+    // blocking objects grown by grow pixels, at the same tiles markOnTiles covers
+    private static List<float[]> obstacles(GameWorld world, float grow) {
+        int tileSize = world.tileSize;
+        List<float[]> obstacles = new ArrayList<>();
+        for (CollisionObject obj : world.getObjects()) {
+            if (obj.type != 1 && obj.type != 2) continue;
+            int startX = (obj.posX + obj.offsetX) / tileSize, startY = (obj.posY + obj.offsetY) / tileSize;
+            int endX = (obj.posX + obj.offsetX + obj.collisionWidth) / tileSize;
+            int endY = (obj.posY + obj.offsetY + obj.collisionHeight) / tileSize;
+            obstacles.add(new float[] {
+                startX * tileSize - grow, startY * tileSize - grow,
+                (endX + 1) * tileSize + grow, (endY + 1) * tileSize + grow
+            });
+        }
+        return obstacles;
+    }
+
+    /**
+     * Cuts the free space between fromX and toX into slab rectangles and adds them to rects, merged with the
+     * rectangles of open (ending at fromX) and with each other.
+     * @return the rectangles reaching toX
+     */
+    private static List<float[]> decompose(List<float[]> obstacles, float fromX, float toX, float domainMinY, float domainMaxY,
+                                           List<float[]> open, List<float[]> rects) {
+        // slab borders at every obstacle edge inside the range
+        float[] xs = new float[obstacles.size() * 2 + 2];
+        int xCount = 0;
+        xs[xCount++] = fromX;
+        xs[xCount++] = toX;
+        for (float[] o : obstacles) {
+            if (o[0] > fromX && o[0] < toX) xs[xCount++] = o[0];
+            if (o[2] > fromX && o[2] < toX) xs[xCount++] = o[2];
+        }
+        Arrays.sort(xs, 0, xCount);
+
+        float[] covered = new float[obstacles.size() * 2];
+        for (int i = 0; i + 1 < xCount; i++) {
+            float slabMinX = xs[i], slabMaxX = xs[i + 1];
+            if (slabMaxX - slabMinX < EPSILON) continue;
+
+            // y ranges blocked in this slab, sorted by start
+            int coveredCount = 0;
+            for (float[] o : obstacles) {
+                if (o[0] < slabMaxX - EPSILON && o[2] > slabMinX + EPSILON) {
+                    covered[coveredCount++] = o[1];
+                    covered[coveredCount++] = o[3];
+                }
+            }
+            sortRanges(covered, coveredCount / 2);
+
+            List<float[]> next = new ArrayList<>();
+            float y = domainMinY;
+            for (int c = 0; c <= coveredCount; c += 2) {
+                float freeMaxY = c < coveredCount ? Math.min(covered[c], domainMaxY) : domainMaxY;
+                if (freeMaxY - y > EPSILON) next.add(extend(open, rects, slabMinX, slabMaxX, y, freeMaxY));
+                if (c < coveredCount) y = Math.max(y, covered[c + 1]);
+            }
+            open = next;
+        }
+        return open;
+    }
+
+    // continues a rectangle of the previous slab with the same y range, or starts a new one
+    private static float[] extend(List<float[]> previous, List<float[]> rects, float slabMinX, float slabMaxX, float y0, float y1) {
+        for (float[] r : previous) {
+            if (Math.abs(r[2] - slabMinX) < EPSILON && Math.abs(r[1] - y0) < EPSILON && Math.abs(r[3] - y1) < EPSILON) {
+                r[2] = slabMaxX;
+                return r;
+            }
+        }
+        float[] r = { slabMinX, y0, slabMaxX, y1 };
+        rects.add(r);
+        return r;
+    }
+
+    // insertion sort of (start, end) pairs by start, there are only a few per slab
+    private static void sortRanges(float[] ranges, int count) {
+        for (int i = 1; i < count; i++) {
+            float start = ranges[i * 2], end = ranges[i * 2 + 1];
+            int j = i - 1;
+            while (j >= 0 && ranges[j * 2] > start) {
+                ranges[(j + 1) * 2] = ranges[j * 2];
+                ranges[(j + 1) * 2 + 1] = ranges[j * 2 + 1];
+                j--;
+            }
+            ranges[(j + 1) * 2] = start;
+            ranges[(j + 1) * 2 + 1] = end;
+        }
+    }
+
+    // ==============
+    // --- SEARCH ---
+    // ==============
+
+    /**
+     * Finds a path between two tiles and writes the tiles of its corners (start first) into pathOut.
+     * Start or goal inside an obstacle's margin are moved to the closest point of the mesh.
+     * @return number of tiles written, 0 when no path was found
+     */
+    public int findPath(int startX, int startY, int goalX, int goalY, int[] pathOut) {
+        if (!grid.isInBounds(startX, startY) || !grid.isInBounds(goalX, goalY)) return 0;
+
+        float sx = (startX + 0.5f) * tileSize, sy = (startY + 0.5f) * tileSize;
+        float gx = (goalX + 0.5f) * tileSize, gy = (goalY + 0.5f) * tileSize;
+        int pointCount = findPath(sx, sy, gx, gy);
+        if (pointCount == 0) return 0;
+
+        // corners to tiles, the start tile is kept as it is
+        int length = 0;
+        pathOut[length++] = grid.index(startX, startY);
+        for (int i = 1; i < pointCount; i++) {
+            int tileX = Math.min(grid.width - 1, (int) (points[i * 2] / tileSize));
+            int tileY = Math.min(grid.height - 1, (int) (points[i * 2 + 1] / tileSize));
+            int tile = grid.index(tileX, tileY);
+            if (tile != pathOut[length - 1]) pathOut[length++] = tile;
+        }
+        return length;
+    }
+
+    /**
+     * Finds a path between two points in pixels, the corners (x, y pairs) are read with getPoints.
+     * @return number of points, 0 when no path was found
+     */
+    public int findPath(float startX, float startY, float goalX, float goalY) {
+        int startRect = locate(startX, startY);
+        int goalRect = locate(goalX, goalY);
+        if (startRect < 0 || goalRect < 0) return 0;
+
+        // points inside an obstacle's margin are walked out of it first
+        startX = clamp(startX, minX[startRect], maxX[startRect]);
+        startY = clamp(startY, minY[startRect], maxY[startRect]);
+        goalX = clamp(goalX, minX[goalRect], maxX[goalRect]);
+        goalY = clamp(goalY, minY[goalRect], maxY[goalRect]);
+
+        int rectCount = searchRects(startRect, goalRect, startX, startY, goalX, goalY);
+        if (rectCount == 0) return 0;
+        return funnel(rectCount, startX, startY, goalX, goalY);
+    }
+
+    // A* over the rectangles, costs are measured between portal midpoints; writes the rectangles into rectPath
+    private int searchRects(int startRect, int goalRect, float startX, float startY, float goalX, float goalY) {
+        if (++generation == Integer.MAX_VALUE) {
+            Arrays.fill(seen, 0);
+            Arrays.fill(closed, 0);
+            generation = 1;
+        }
+        int gen = generation;
+        open.clear();
+        lastExpansions = 0;
+
+        seen[startRect] = gen;
+        gCost[startRect] = 0f;
+        parent[startRect] = -1;
+        entryX[startRect] = startX;
+        entryY[startRect] = startY;
+        open.add(startRect, distance(startX, startY, goalX, goalY));
+
+        boolean found = false;
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            lastExpansions++;
+            if (current == goalRect) {
+                found = true;
+                break;
+            }
+            closed[current] = gen;
+
+            for (int e = edgeStart[current]; e < edgeStart[current + 1]; e++) {
+                int next = edgeTarget[e];
+                if (closed[next] == gen) continue;
+
+                float px = portalX[e];
+                float py = clamp(current == startRect ? startY : (portalMinY[e] + portalMaxY[e]) / 2f,
+                    portalMinY[e], portalMaxY[e]);
+                float newCost = gCost[current] + distance(entryX[current], entryY[current], px, py);
+                if (seen[next] != gen || newCost < gCost[next]) {
+                    seen[next] = gen;
+                    gCost[next] = newCost;
+                    parent[next] = current;
+                    parentEdge[next] = e;
+                    entryX[next] = px;
+                    entryY[next] = py;
+                    open.update(next, newCost + distance(px, py, goalX, goalY));
+                }
+            }
+        }
+        if (!found) return 0;
+
+        int length = 0;
+        for (int r = goalRect; r != -1; r = parent[r]) length++;
+        int i = length;
+        for (int r = goalRect; r != -1; r = parent[r]) rectPath[--i] = r;
+        return length;
+    }
+
+    /**
+     * Simple stupid funnel algorithm over the portals of the rectangle path.
+     * Portals are stored as (left, right) seen in the direction of travel; the funnel narrows portal by portal
+     * and a corner is emitted whenever one side would cross over the other.
+     */
+    private int funnel(int rectCount, float startX, float startY, float goalX, float goalY) {
+        int portalCount = 0;
+        setPortal(portalCount++, startX, startY, startX, startY);
+        for (int i = 1; i < rectCount; i++) {
+            int e = parentEdge[rectPath[i]];
+            float x = portalX[e];
+            if (maxX[rectPath[i - 1]] <= x + EPSILON) setPortal(portalCount++, x, portalMaxY[e], x, portalMinY[e]); // going right
+            else setPortal(portalCount++, x, portalMinY[e], x, portalMaxY[e]);                                       // going left
+        }
+        setPortal(portalCount++, goalX, goalY, goalX, goalY);
+
+        if (points.length < portalCount * 2) points = new float[portalCount * 2];
+        int count = 0;
+        float apexX = startX, apexY = startY;
+        float leftX = startX, leftY = startY, rightX = startX, rightY = startY;
+        int apexIndex = 0, leftIndex = 0, rightIndex = 0;
+        points[count * 2] = apexX;
+        points[count++ * 2 + 1] = apexY;
+
+        for (int i = 1; i < portalCount; i++) {
+            float pLeftX = portals[i * 4], pLeftY = portals[i * 4 + 1];
+            float pRightX = portals[i * 4 + 2], pRightY = portals[i * 4 + 3];
+
+            // right side
+            if (cross(apexX, apexY, rightX, rightY, pRightX, pRightY) >= 0f) {
+                if (same(apexX, apexY, rightX, rightY) || cross(apexX, apexY, leftX, leftY, pRightX, pRightY) < 0f) {
+                    rightX = pRightX;
+                    rightY = pRightY;
+                    rightIndex = i;
+                } else {
+                    // right crossed over left, left becomes a corner
+                    apexX = leftX;
+                    apexY = leftY;
+                    apexIndex = leftIndex;
+                    count = addPoint(count, apexX, apexY);
+                    leftX = rightX = apexX;
+                    leftY = rightY = apexY;
+                    leftIndex = rightIndex = apexIndex;
+                    i = apexIndex;
+                    continue;
+                }
+            }
+
+            // left side
+            if (cross(apexX, apexY, leftX, leftY, pLeftX, pLeftY) <= 0f) {
+                if (same(apexX, apexY, leftX, leftY) || cross(apexX, apexY, rightX, rightY, pLeftX, pLeftY) > 0f) {
+                    leftX = pLeftX;
+                    leftY = pLeftY;
+                    leftIndex = i;
+                } else {
+                    apexX = rightX;
+                    apexY = rightY;
+                    apexIndex = rightIndex;
+                    count = addPoint(count, apexX, apexY);
+                    leftX = rightX = apexX;
+                    leftY = rightY = apexY;
+                    leftIndex = rightIndex = apexIndex;
+                    i = apexIndex;
+                }
+            }
+        }
+        return addPoint(count, goalX, goalY);
+    }
+
+    private void setPortal(int i, float leftX, float leftY, float rightX, float rightY) {
+        portals[i * 4] = leftX;
+        portals[i * 4 + 1] = leftY;
+        portals[i * 4 + 2] = rightX;
+        portals[i * 4 + 3] = rightY;
+    }
+
+    // adds a corner unless it repeats the last one
+    private int addPoint(int count, float x, float y) {
+        if (count > 0 && same(points[(count - 1) * 2], points[(count - 1) * 2 + 1], x, y)) return count;
+        points[count * 2] = x;
+        points[count * 2 + 1] = y;
+        return count + 1;
+    }
+
+    // rectangle under the point, or the closest one when the point lies in an obstacle's margin
+    private int locate(float x, float y) {
+        int tileX = (int) (x / tileSize), tileY = (int) (y / tileSize);
+        if (grid.isInBounds(tileX, tileY)) {
+            int rect = rectAtTile[grid.index(tileX, tileY)];
+            if (rect >= 0) return rect;
+        }
+
+        int best = -1;
+        float bestDistance = Float.MAX_VALUE;
+        for (int r = 0; r < rectCount; r++) {
+            float d = distance(x, y, clamp(x, minX[r], maxX[r]), clamp(y, minY[r], maxY[r]));
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = r;
+            }
+        }
+        return best;
+    }
+
+    // ========================
+    // --- HELPER FUNCTIONS ---
+    // ========================
+
+    // positive when c lies left of the line a -> b
+    private static float cross(float ax, float ay, float bx, float by, float cx, float cy) {
+        return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax);
+    }
+
+    private static boolean same(float ax, float ay, float bx, float by) {
+        return Math.abs(ax - bx) < EPSILON && Math.abs(ay - by) < EPSILON;
+    }
+
+    private static float distance(float ax, float ay, float bx, float by) {
+        float dx = ax - bx, dy = ay - by;
+        return (float) Math.sqrt(dx * dx + dy * dy);
+    }
+
+    private static float clamp(float value, float min, float max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    // corners of the last pixel request as x, y pairs
+    public float[] getPoints() {
+        return points;
+    }
+
+    public int getRectCount() {
+        return rectCount;
+    }
+}
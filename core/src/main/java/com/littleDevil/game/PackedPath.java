@@ -0,0 +1,104 @@
+package com.littleDevil.game;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Path stored as flat tile indices (y * width + x), start first.
+ * Paths are pooled by capacity and shared: the path cache and every enemy following a path retain it,
+ * the last release hands it back to the pool. A path nobody retained is simply left to the garbage collector.
+ * Paths are filled once when they are obtained and never changed while retained.
+ * obtain may be called from path worker threads, retain and release only on the render thread.
+ */
+public class PackedPath {
+
+    public static final PackedPath EMPTY = new PackedPath(0, 1); // no path, never pooled
+
+    private static final int MAX_POOLED_BUCKET = 16; // paths longer than 2^16 tiles are not pooled
+    private static final int MAX_PER_BUCKET = 64;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final ConcurrentLinkedQueue<PackedPath>[] pool = new ConcurrentLinkedQueue[MAX_POOLED_BUCKET + 1];
+    static {
+        for (int i = 0; i < pool.length; i++) pool[i] = new ConcurrentLinkedQueue<>();
+    }
+
+    private final int[] tiles;
+    private int length;
+    private int width; // grid width, to get coordinates back from the indices
+    private int references = 0;
+
+    private PackedPath(int capacity, int width) {
+        this.tiles = new int[capacity];
+        this.width = width;
+    }
+
+    /**
+     * Returns a path holding a copy of the first length tiles.
+     */
+    public static PackedPath copyOf(int[] tiles, int length, int width) {
+        if (length == 0) return EMPTY;
+        PackedPath path = obtain(length, width);
+        System.arraycopy(tiles, 0, path.tiles, 0, length);
+        path.length = length;
+        return path;
+    }
+
+    // path of a single tile, for walking straight at a target
+    public static PackedPath of(int tile, int width) {
+        PackedPath path = obtain(1, width);
+        path.tiles[0] = tile;
+        path.length = 1;
+        return path;
+    }
+
+    private static PackedPath obtain(int length, int width) {
+        int bucket = bucketOf(length);
+        if (bucket <= MAX_POOLED_BUCKET) {
+            PackedPath path = pool[bucket].poll();
+            if (path != null) {
+                path.width = width;
+                return path;
+            }
+        }
+        return new PackedPath(bucket <= MAX_POOLED_BUCKET ? 1 << bucket : length, width);
+    }
+
+    // smallest power of two exponent that holds length
+    private static int bucketOf(int length) {
+        return length <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(length - 1);
+    }
+
+    public PackedPath retain() {
+        if (this != EMPTY) references++;
+        return this;
+    }
+
+    public void release() {
+        if (this == EMPTY || --references > 0) return;
+        int bucket = bucketOf(tiles.length);
+        if (bucket <= MAX_POOLED_BUCKET && pool[bucket].size() < MAX_PER_BUCKET) {
+            length = 0;
+            pool[bucket].add(this);
+        }
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    public int tileAt(int i) {
+        return tiles[i];
+    }
+
+    public int xAt(int i) {
+        return tiles[i] % width;
+    }
+
+    public int yAt(int i) {
+        return tiles[i] / width;
+    }
+}
@@ -0,0 +1,69 @@
+package com.littleDevil.game;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Picks the mode for a request when GameWorld.pathfinderMode is AUTO: the candidate with the lowest mean search time
+ * in the PathTelemetry for the request's class. Until every candidate has MIN_SAMPLES requests in a class the least
+ * measured one is used, and every EXPLORE_INTERVAL-th request of a class goes to the candidates in turn,
+ * so a mode that got slower (or faster) on a changed map is noticed again.
+ * Candidates have to deliver the same kind of path for their times to be comparable: complete and optimal.
+ * Hierarchical requests only refine the first segments, multi-resolution and navmesh paths are not optimal,
+ * so those would always look cheapest and are no candidates by default. Callers also filter out the modes
+ * that ignore the cost layer while traversal costs are on.
+ */
+public class PathAutoSelector {
+
+    public static final int MIN_SAMPLES = 20;
+    public static final int EXPLORE_INTERVAL = 50;
+
+    // the incremental planner keeps a tree per enemy, its cost depends on the enemy's history and is not comparable
+    public Pathfinder.Mode[] candidates = { Pathfinder.Mode.ASTAR, Pathfinder.Mode.JPS_PLUS, Pathfinder.Mode.ASTAR_LANDMARKS };
+
+    private final int[] requestCounts = new int[PathTelemetry.RequestClass.values().length];
+
+    /**
+     * Mode to solve a request of the class with, among the candidates the filter accepts.
+     * @return ASTAR when the filter accepts none of them
+     */
+    public synchronized Pathfinder.Mode select(PathTelemetry telemetry, PathTelemetry.RequestClass requestClass,
+                                               Predicate<Pathfinder.Mode> allowed) {
+        int count = requestCounts[requestClass.ordinal()]++;
+
+        Pathfinder.Mode leastSampled = null, cheapest = null;
+        long fewestRequests = Long.MAX_VALUE;
+        float lowestMicros = Float.MAX_VALUE;
+        int allowedCount = 0;
+        for (Pathfinder.Mode mode : candidates) {
+            if (!allowed.test(mode)) continue;
+            allowedCount++;
+
+            long requests = telemetry.getRequests(mode, requestClass);
+            if (requests < fewestRequests) {
+                fewestRequests = requests;
+                leastSampled = mode;
+            }
+            float micros = telemetry.getAverageMicros(mode, requestClass);
+            if (requests > 0 && micros < lowestMicros) {
+                lowestMicros = micros;
+                cheapest = mode;
+            }
+        }
+        if (allowedCount == 0) return Pathfinder.Mode.ASTAR;
+        if (fewestRequests < MIN_SAMPLES || cheapest == null) return leastSampled;
+        if (count % EXPLORE_INTERVAL == 0) return nthAllowed(count / EXPLORE_INTERVAL % allowedCount, allowed);
+        return cheapest;
+    }
+
+    private Pathfinder.Mode nthAllowed(int n, Predicate<Pathfinder.Mode> allowed) {
+        for (Pathfinder.Mode mode : candidates) {
+            if (allowed.test(mode) && n-- == 0) return mode;
+        }
+        return Pathfinder.Mode.ASTAR;
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(requestCounts, 0);
+    }
+}
@@ -0,0 +1,118 @@
+package com.littleDevil.game;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of solved paths in front of the pathfinders.
+ * Keyed by (mode, agent radius, start region, goal tile): enemies standing close together and chasing
+ * the same player tile share one path, the enemy joins it at its closest node.
+ * The whole cache is dropped when the grid version of the GameWorld changes, or the version of the cost layer
+ * the paths were weighted with: a cost-weighted path is only shared while the crowd stands where it was solved,
+ * and every enemy asking in that time would have found the same path anyway.
+ * The cache holds a reference to every cached path until it is evicted.
+ */
+public class PathCache {
+
+    public static final int DEFAULT_CAPACITY = 256;
+    public static final int DEFAULT_REGION_SIZE = 2; // start tiles are grouped in squares of this size
+    public static final int UNIFORM_COSTS = -1; // cost version of requests that ignore the cost layer
+
+    public final int capacity;
+    public final int regionSize;
+
+    // counters for checking the effect in crowded fights
+    public long hits = 0, misses = 0;
+
+    private final LinkedHashMap<Long, PackedPath> paths;
+    private int version = -1;
+    private int costVersion = UNIFORM_COSTS;
+
+    public PathCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_REGION_SIZE);
+    }
+
+    public PathCache(int capacity, int regionSize) {
+        this.capacity = capacity;
+        this.regionSize = regionSize;
+        this.paths = new LinkedHashMap<>(capacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, PackedPath> eldest) {
+                if (size() <= PathCache.this.capacity) return false;
+                eldest.getValue().release();
+                return true;
+            }
+        };
+    }
+
+    // incremental paths start at the planner's own anchor, they cannot be shared
+    public static boolean isCacheable(Pathfinder.Mode mode) {
+        return mode != Pathfinder.Mode.INCREMENTAL;
+    }
+
+    // the cost version to key a request with, costs = the layer its search follows, null = uniform
+    public static int costVersionOf(CostLayer costs) {
+        return costs == null ? UNIFORM_COSTS : costs.version;
+    }
+
+    /**
+     * Returns the cached path for the request, or null on a miss.
+     */
+    public PackedPath get(Pathfinder.Mode mode, int gridVersion, int costVersion,
+                          int startX, int startY, int goalX, int goalY, int radius) {
+        if (!isCacheable(mode)) return null;
+        checkVersion(gridVersion, costVersion);
+
+        PackedPath path = paths.get(key(mode, startX, startY, goalX, goalY, radius));
+        if (path == null) misses++;
+        else hits++;
+        return path;
+    }
+
+    // stores a solved path, results computed on an older grid or older costs are ignored
+    public void put(Pathfinder.Mode mode, int gridVersion, int costVersion,
+                    int startX, int startY, int goalX, int goalY, int radius, PackedPath path) {
+        if (!isCacheable(mode) || path == null) return;
+        if (gridVersion < version || (gridVersion == version && costVersion < this.costVersion)) return;
+        checkVersion(gridVersion, costVersion);
+        PackedPath old = paths.put(key(mode, startX, startY, goalX, goalY, radius), path.retain());
+        if (old != null) old.release();
+    }
+
+    public void clear() {
+        for (PackedPath path : paths.values()) path.release();
+        paths.clear();
+    }
+
+    public int size() {
+        return paths.size();
+    }
+
+    public float getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0f : (float) hits / total;
+    }
+
+    public void resetCounters() {
+        hits = 0;
+        misses = 0;
+    }
+
+    private void checkVersion(int gridVersion, int costVersion) {
+        if (gridVersion == version && costVersion == this.costVersion) return;
+        clear();
+        version = gridVersion;
+        this.costVersion = costVersion;
+    }
+
+    // 4 bits mode, 8 bits radius, 13 + 13 bits start region, 13 + 13 bits goal tile
+    private long key(Pathfinder.Mode mode, int startX, int startY, int goalX, int goalY, int radius) {
+        long key = mode.ordinal();
+        key = (key << 8) | (radius & 0xFF);
+        key = (key << 13) | ((startX / regionSize) & 0x1FFF);
+        key = (key << 13) | ((startY / regionSize) & 0x1FFF);
+        key = (key << 13) | (goalX & 0x1FFF);
+        key = (key << 13) | (goalY & 0x1FFF);
+        return key;
+    }
+}
@@ -0,0 +1,20 @@
+package com.littleDevil.game;
+
+/**
+ * What one path request reads from the world, taken on the render thread when the request is made.
+ * GameWorld replaces its engines when obstacles change, so path workers only use this snapshot and never the world.
+ * Everything in it was built before the request was handed to the worker and is not changed afterwards,
+ * except the cost multipliers, where a stale value only steers a path a little.
+ */
+public final class PathContext {
+
+    public final NavGrid grid;
+    public final Object engine;     // search structure of the strategy, built for grid (see PathStrategy.prepare)
+    public final CostLayer costs;   // costs the path follows, null = uniform costs
+
+    public PathContext(NavGrid grid, Object engine, CostLayer costs) {
+        this.grid = grid;
+        this.engine = engine;
+        this.costs = costs;
+    }
+}
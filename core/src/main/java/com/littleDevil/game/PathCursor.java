@@ -0,0 +1,74 @@
+package com.littleDevil.game;
+
+/**
+ * Position of an enemy on its current PackedPath.
+ * Holds a reference to the path while following it, so the path goes back to the pool once it was replaced
+ * everywhere. After a repath the cursor continues from the tile closest to where the old path was heading.
+ */
+public class PathCursor {
+
+    private PackedPath path = PackedPath.EMPTY;
+    private int index = 0;
+
+    /**
+     * Switches to a new path. Continues from the tile closest to the old target tile,
+     * or to (fromX, fromY) in tiles when there was none.
+     */
+    public void follow(PackedPath newPath, float fromX, float fromY) {
+        if (hasTarget()) {
+            fromX = path.xAt(index);
+            fromY = path.yAt(index);
+        }
+
+        newPath.retain();
+        path.release();
+        path = newPath;
+        index = closestIndex(fromX, fromY);
+    }
+
+    public void clear() {
+        path.release();
+        path = PackedPath.EMPTY;
+        index = 0;
+    }
+
+    private int closestIndex(float fromX, float fromY) {
+        int closest = 0;
+        float minDist = Float.MAX_VALUE;
+        for (int i = 0; i < path.length(); i++) {
+            float dx = path.xAt(i) - fromX;
+            float dy = path.yAt(i) - fromY;
+            float d = dx * dx + dy * dy;
+            if (d < minDist) {
+                minDist = d;
+                closest = i;
+            }
+        }
+        return closest;
+    }
+
+    // true while there is a tile left to walk to
+    public boolean hasTarget() {
+        return index < path.length();
+    }
+
+    public int targetX() {
+        return path.xAt(index);
+    }
+
+    public int targetY() {
+        return path.yAt(index);
+    }
+
+    public void advance() {
+        index++;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public PackedPath getPath() {
+        return path;
+    }
+}
@@ -0,0 +1,164 @@
+package com.littleDevil.game;
+
+import com.badlogic.gdx.Gdx;
+
+import java.util.EnumMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Solves enemy path requests on worker threads so repath bursts do not land on the render thread.
+ * Requests are solved against the NavGrid that was current when they were submitted; a NavGrid is never
+ * changed after GameWorld publishes it, so workers can read it without locking.
+ * The engines are taken from the world into a PathContext at submit, workers never read the GameWorld.
+ * Finished paths are handed back to their enemies in update at the start of GameWorld.update,
+ * until then an enemy keeps following its old path.
+ */
+public class PathRequestService implements PathService {
+
+    private final ExecutorService workers;
+    private final ConcurrentLinkedQueue<Result> completed = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<int[]> pathBuffers = ThreadLocal.withInitial(() -> new int[0]);
+    private final EnumMap<Pathfinder.Mode, PathStrategy> strategies = new EnumMap<>(Pathfinder.Mode.class); // shared by all workers
+
+    public PathRequestService(int workerCount) {
+        workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "path-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (Pathfinder.Mode mode : Pathfinder.Mode.values()) {
+            if (PathStrategies.isRegistered(mode)) strategies.put(mode, PathStrategies.create(mode));
+        }
+    }
+
+    // leaves one core for the render thread
+    public static int defaultWorkerCount() {
+        return Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    // strategies with shared mutable state have to run on the render thread,
+    // in AUTO mode requests on the workers only pick from the thread safe ones
+    @Override
+    public boolean supports(Pathfinder.Mode mode) {
+        if (mode == Pathfinder.Mode.AUTO) return true;
+        PathStrategy strategy = strategies.get(mode);
+        return strategy != null && strategy.isThreadSafe();
+    }
+
+    @Override
+    public void submit(Enemy enemy, GameWorld world, int startX, int startY, int goalX, int goalY, int radius) {
+        if (enemy.pathPending) return;
+        enemy.pathPending = true;
+
+        NavGrid grid = world.navGrid;
+        Pathfinder.Mode mode = world.pathfinderMode;
+        int gridVersion = world.gridVersion;
+        PathTelemetry.RequestClass requestClass = mode == Pathfinder.Mode.AUTO || world.pathTelemetry.enabled
+            ? PathTelemetry.classify(grid, startX, startY, goalX, goalY) : null;
+        boolean costs = world.useTraversalCosts && world.costLayer != null;
+        Pathfinder.Mode strategyMode = mode != Pathfinder.Mode.AUTO ? mode
+            : world.autoSelector.select(world.pathTelemetry, requestClass,
+                candidate -> supports(candidate) && (!costs || strategies.get(candidate).followsCosts()));
+        PathStrategy strategy = strategies.get(strategyMode);
+        PathContext context = strategy == null ? null : strategy.prepare(world, grid, startX, startY, radius);
+        if (context == null) {
+            strategy = strategies.get(Pathfinder.Mode.ASTAR);
+            context = strategy.prepare(world, grid, startX, startY, radius);
+        }
+        // the worker only gets what was taken from the world here, handing it to the executor publishes it safely
+        PathStrategy chosen = strategy;
+        PathContext chosenContext = context;
+        PathTelemetry telemetry = world.pathTelemetry;
+        boolean smooth = world.smoothPaths && strategy.isSmoothable();
+        int costVersion = PathCache.costVersionOf(context.costs);
+        workers.execute(() -> {
+            PackedPath path;
+            try {
+                path = solve(chosenContext, chosen, telemetry, requestClass, startX, startY, goalX, goalY, radius, smooth);
+            } catch (RuntimeException e) {
+                // a bug, not a missing path: report it and let the enemy keep its old path until the next repath
+                Gdx.app.error("PathRequestService", chosen.getMode() + " request failed", e);
+                if (requestClass != null) telemetry.record(chosen.getMode(), requestClass, 0L, 0, false);
+                path = null;
+            }
+            Result result = new Result(enemy, grid, path);
+            result.cacheRequest(mode, gridVersion, costVersion, startX, startY, goalX, goalY, radius);
+            completed.add(result);
+        });
+    }
+
+    // runs on a worker thread, the engines keep their search arrays per thread
+    private PackedPath solve(PathContext context, PathStrategy strategy, PathTelemetry telemetry,
+                             PathTelemetry.RequestClass requestClass,
+                             int startX, int startY, int goalX, int goalY, int radius, boolean smooth) {
+        NavGrid grid = context.grid;
+        int[] buffer = pathBuffers.get();
+        if (buffer.length < grid.size()) {
+            buffer = new int[grid.size()];
+            pathBuffers.set(buffer);
+        }
+
+        long startTime = System.nanoTime();
+        int length = strategy.findPath(context, startX, startY, goalX, goalY, radius, buffer);
+        if (requestClass != null) {
+            telemetry.record(strategy.getMode(), requestClass, System.nanoTime() - startTime,
+                strategy.getLastExpansions(), length > 0);
+        }
+        return PathSmoother.toPath(grid, context.costs, buffer, length, radius, smooth);
+    }
+
+    /**
+     * Hands finished paths to their enemies, call on the render thread.
+     * Paths solved on an outdated grid and failed requests are dropped and the enemy asks again on its next repath,
+     * the others are also stored in the world's path cache.
+     */
+    @Override
+    public void update(GameWorld world) {
+        Result result;
+        while ((result = completed.poll()) != null) {
+            Enemy enemy = result.enemy;
+            enemy.pathPending = false;
+            if (result.path == null || result.grid != world.navGrid) continue;
+            if (world.pathCache != null) {
+                world.pathCache.put(result.mode, result.gridVersion, result.costVersion, result.startX, result.startY,
+                    result.goalX, result.goalY, result.radius, result.path);
+            }
+            if (enemy.isAlive) enemy.applyPath(result.path, world);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        workers.shutdownNow();
+    }
+
+    private static class Result {
+        final Enemy enemy;
+        final NavGrid grid;
+        final PackedPath path; // null when the search threw
+
+        // request, used as the path cache key
+        Pathfinder.Mode mode;
+        int gridVersion, costVersion, startX, startY, goalX, goalY, radius;
+
+        Result(Enemy enemy, NavGrid grid, PackedPath path) {
+            this.enemy = enemy;
+            this.grid = grid;
+            this.path = path;
+        }
+
+        void cacheRequest(Pathfinder.Mode mode, int gridVersion, int costVersion,
+                          int startX, int startY, int goalX, int goalY, int radius) {
+            this.mode = mode;
+            this.gridVersion = gridVersion;
+            this.costVersion = costVersion;
+            this.startX = startX;
+            this.startY = startY;
+            this.goalX = goalX;
+            this.goalY = goalY;
+            this.radius = radius;
+        }
+    }
+}
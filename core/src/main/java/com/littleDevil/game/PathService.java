@@ -0,0 +1,19 @@
+package com.littleDevil.game;
+
+/**
+ * Solves enemy path requests outside of Enemy.repath.
+ * Finished paths are handed back with Enemy.applyPath from update, which GameWorld calls at the start of every frame.
+ */
+public interface PathService {
+
+    // whether requests for this pathfinder mode can be handled, otherwise the enemy solves inline
+    boolean supports(Pathfinder.Mode mode);
+
+    // queues a request for the enemy, ignored while an older request of it is still pending
+    void submit(Enemy enemy, GameWorld world, int startX, int startY, int goalX, int goalY, int radius);
+
+    // does this frame's share of work and hands finished paths to their enemies
+    void update(GameWorld world);
+
+    void dispose();
+}
@@ -0,0 +1,71 @@
+package com.littleDevil.game;
+
+/**
+ * Turns the per-tile output of the searches into enemy paths.
+ * String-pulling keeps only the tiles where the path has to turn: from every kept tile it skips ahead
+ * to the furthest tile still in line of sight, so a path across an open room becomes one or two waypoints.
+ * With a cost layer a shortcut must also not cost more than the part of the path it replaces, otherwise
+ * the detour the search took around stairs or a crowd would be pulled straight back through it.
+ */
+public class PathSmoother {
+
+    // a shortcut may cost this much more than the path it replaces, covers √2 against AStarEngine.DIAGONAL_COST
+    private static final float COST_TOLERANCE = 1.0001f;
+
+    /**
+     * Removes the tiles between waypoints that can see each other, in place.
+     * @return new length of the path, start and goal are always kept
+     */
+    public static int smooth(NavGrid grid, int[] tiles, int length, int radius) {
+        return smooth(grid, null, tiles, length, radius);
+    }
+
+    /**
+     * Same as smooth, keeping every shortcut at most as expensive under costs (null = uniform) as the path.
+     */
+    public static int smooth(NavGrid grid, CostLayer costs, int[] tiles, int length, int radius) {
+        if (length <= 2) return length;
+
+        int kept = 1;
+        int anchor = tiles[0];
+        float along = costs != null ? stepCost(grid, costs, tiles[0], tiles[1]) : 0f; // cost of the path from the anchor to next
+        for (int i = 1; i < length - 1; i++) {
+            int next = tiles[i + 1];
+            int ax = grid.xOf(anchor), ay = grid.yOf(anchor), nx = grid.xOf(next), ny = grid.yOf(next);
+            boolean shortcut = grid.hasLineOfSight(ax, ay, nx, ny, radius);
+            if (costs != null) {
+                float step = stepCost(grid, costs, tiles[i], next);
+                along += step;
+                if (shortcut) {
+                    float distance = (float) Math.sqrt((nx - ax) * (nx - ax) + (ny - ay) * (ny - ay));
+                    shortcut = distance * costs.meanMultiplier(ax, ay, nx, ny, false) <= along * COST_TOLERANCE;
+                }
+                if (!shortcut) along = step;
+            }
+            if (!shortcut) {
+                anchor = tiles[i];
+                tiles[kept++] = anchor;
+            }
+        }
+        tiles[kept++] = tiles[length - 1];
+        return kept;
+    }
+
+    // packs the first length tiles into a path, string-pulled when smooth is set
+    public static PackedPath toPath(NavGrid grid, int[] tiles, int length, int radius, boolean smooth) {
+        return toPath(grid, null, tiles, length, radius, smooth);
+    }
+
+    // same as toPath, string-pulling only where it does not make the path more expensive under costs (null = uniform)
+    public static PackedPath toPath(NavGrid grid, CostLayer costs, int[] tiles, int length, int radius, boolean smooth) {
+        if (length == 0) return PackedPath.EMPTY;
+        if (smooth) length = smooth(grid, costs, tiles, length, radius);
+        return PackedPath.copyOf(tiles, length, grid.width);
+    }
+
+    // the A* cost of stepping between two neighbouring tiles
+    private static float stepCost(NavGrid grid, CostLayer costs, int from, int to) {
+        boolean diagonal = grid.xOf(from) != grid.xOf(to) && grid.yOf(from) != grid.yOf(to);
+        return (diagonal ? AStarEngine.DIAGONAL_COST : 1f) * costs.multiplier[to];
+    }
+}
@@ -0,0 +1,222 @@
+package com.littleDevil.game;
+
+import java.util.EnumMap;
+import java.util.function.Supplier;
+
+/**
+ * Registry of the strategy behind every pathfinder mode.
+ * Register replacements before the world is initialized, path services create their strategies once.
+ * prepare runs on the render thread and is the only place that reads the world, findPath only uses the context.
+ */
+public final class PathStrategies {
+
+    private static final EnumMap<Pathfinder.Mode, Supplier<PathStrategy>> FACTORIES = new EnumMap<>(Pathfinder.Mode.class);
+
+    static {
+        register(Pathfinder.Mode.ASTAR, AStar::new);
+        register(Pathfinder.Mode.JPS_PLUS, JpsPlus::new);
+        register(Pathfinder.Mode.HIERARCHICAL, Hierarchical::new);
+        register(Pathfinder.Mode.INCREMENTAL, Incremental::new);
+        register(Pathfinder.Mode.MULTI_RESOLUTION, MultiResolution::new);
+        register(Pathfinder.Mode.NAVMESH, Mesh::new);
+        register(Pathfinder.Mode.ASTAR_LANDMARKS, Landmarks::new);
+    }
+
+    private PathStrategies() {
+    }
+
+    public static synchronized void register(Pathfinder.Mode mode, Supplier<PathStrategy> factory) {
+        FACTORIES.put(mode, factory);
+    }
+
+    public static synchronized boolean isRegistered(Pathfinder.Mode mode) {
+        return FACTORIES.containsKey(mode);
+    }
+
+    // new strategy instance for the mode, plain A* for modes without a strategy (AUTO)
+    public static synchronized PathStrategy create(Pathfinder.Mode mode) {
+        Supplier<PathStrategy> factory = FACTORIES.get(mode);
+        return factory != null ? factory.get() : FACTORIES.get(Pathfinder.Mode.ASTAR).get();
+    }
+
+    static CostLayer costsOf(GameWorld world) {
+        return world.useTraversalCosts ? world.costLayer : null;
+    }
+
+    // ===========================
+    // --- BUILT-IN STRATEGIES ---
+    // ===========================
+
+    // A* also handles starts inside the collision padding and agents of other sizes
+    static class AStar implements PathStrategy {
+        @Override public Pathfinder.Mode getMode() { return Pathfinder.Mode.ASTAR; }
+
+        @Override
+        public PathContext prepare(GameWorld world, NavGrid grid, int startX, int startY, int radius) {
+            AStarEngine engine = new AStarEngine(grid, null, costsOf(world));
+            return new PathContext(grid, engine, engine.costs);
+        }
+
+        @Override
+        public int findPath(PathContext context, int startX, int startY, int goalX, int goalY, int radius, int[] pathOut) {
+            return ((AStarEngine) context.engine).findPath(startX, startY, goalX, goalY, radius, pathOut);
+        }
+
+        @Override public int getLastExpansions() { return AStarEngine.lastExpansionCount(); }
+        @Override public boolean isThreadSafe() { return true; }
+        @Override public boolean isSmoothable() { return true; }
+        @Override public boolean followsCosts() { return true; }
+    }
+
+    static class JpsPlus implements PathStrategy {
+        @Override public Pathfinder.Mode getMode() { return Pathfinder.Mode.JPS_PLUS; }
+
+        @Override
+        public PathContext prepare(GameWorld world, NavGrid grid, int startX, int startY, int radius) {
+            JpsPlusEngine jps = world.jpsPlus;
+            if (jps == null || jps.grid != grid || jps.radius != radius || !jps.isWalkable(startX, startY)) return null;
+            return new PathContext(grid, jps, null);
+        }
+
+        @Override
+        public int findPath(PathContext context, int startX, int startY, int goalX, int goalY, int radius, int[] pathOut) {
+            return ((JpsPlusEngine) context.engine).findPath(startX, startY, goalX, goalY, pathOut);
+        }
+
+        // the jump point search counts into the A* search state of the thread
+        @Override public int getLastExpansions() { return AStarEngine.lastExpansionCount(); }
+        @Override public boolean isThreadSafe() { return true; }
+        @Override public boolean isSmoothable() { return true; }
+        @Override public boolean followsCosts() { return false; }
+    }
+
+    // keeps mutable scratch arrays in the shared HierarchicalPathfinder, render thread only
+    static class Hierarchical implements PathStrategy {
+        private int lastExpansions;
+
+        @Override public Pathfinder.Mode getMode() { return Pathfinder.Mode.HIERARCHICAL; }
+
+        @Override
+        public PathContext prepare(GameWorld world, NavGrid grid, int startX, int startY, int radius) {
+            HierarchicalPathfinder hpa = world.hierarchical;
+            if (hpa == null || hpa.grid != grid || hpa.radius != radius) return null;
+            return new PathContext(grid, hpa, null);
+        }
+
+        @Override
+        public int findPath(PathContext context, int startX, int startY, int goalX, int goalY, int radius, int[] pathOut) {
+            HierarchicalPathfinder hpa = (HierarchicalPathfinder) context.engine;
+            int length = hpa.findPath(startX, startY, goalX, goalY, pathOut);
+            lastExpansions = hpa.lastExpansions;
+            return length;
+        }
+
+        @Override public int getLastExpansions() { return lastExpansions; }
+        @Override public boolean isThreadSafe() { return false; }
+        @Override public boolean isSmoothable() { return true; }
+        @Override public boolean followsCosts() { return false; }
+    }
+
+    // one search tree per instance, so every enemy has to own its own strategy
+    static class Incremental implements PathStrategy {
+        private IncrementalPlanner planner;
+
+        @Override public Pathfinder.Mode getMode() { return Pathfinder.Mode.INCREMENTAL; }
+
+        @Override
+        public PathContext prepare(GameWorld world, NavGrid grid, int startX, int startY, int radius) {
+            return new PathContext(grid, null, null);
+        }
+
+        @Override
+        public int findPath(PathContext context, int startX, int startY, int goalX, int goalY, int radius, int[] pathOut) {
+            NavGrid grid = context.grid;
+            if (planner == null || planner.grid != grid || planner.radius != radius) planner = new IncrementalPlanner(grid, radius);
+            return planner.plan(startX, startY, goalX, goalY, pathOut);
+        }
+
+        // lets the planner repair its tree after tiles in the rectangle changed
+        void onTilesChanged(NavGrid grid, int minX, int minY, int maxX, int maxY) {
+            if (planner != null) planner.onTilesChanged(grid, minX, minY, maxX, maxY);
+        }
+
+        @Override public int getLastExpansions() { return planner == null ? 0 : planner.lastExpansions; }
+        @Override public boolean isThreadSafe() { return false; }
+        @Override public boolean isSmoothable() { return true; }
+        @Override public boolean followsCosts() { return false; }
+    }
+
+    static class MultiResolution implements PathStrategy {
+        private volatile MultiResolutionPathfinder last; // counts its expansions per thread
+
+        @Override public Pathfinder.Mode getMode() { return Pathfinder.Mode.MULTI_RESOLUTION; }
+
+        @Override
+        public PathContext prepare(GameWorld world, NavGrid grid, int startX, int startY, int radius) {
+            MultiResolutionPathfinder multi = world.multiResolution;
+            if (multi == null || multi.grid != grid || multi.radius != radius) return null;
+            return new PathContext(grid, multi, null);
+        }
+
+        @Override
+        public int findPath(PathContext context, int startX, int startY, int goalX, int goalY, int radius, int[] pathOut) {
+            MultiResolutionPathfinder multi = (MultiResolutionPathfinder) context.engine;
+            last = multi;
+            return multi.findPath(startX, startY, goalX, goalY, pathOut);
+        }
+
+        @Override public int getLastExpansions() { return last == null ? 0 : last.lastExpansionCount(); }
+        @Override public boolean isThreadSafe() { return true; }
+        @Override public boolean isSmoothable() { return true; }
+        @Override public boolean followsCosts() { return false; }
+    }
+
+    // the mesh keeps its search arrays in the shared NavMesh, render thread only
+    static class Mesh implements PathStrategy {
+        private int lastExpansions;
+
+        @Override public Pathfinder.Mode getMode() { return Pathfinder.Mode.NAVMESH; }
+
+        @Override
+        public PathContext prepare(GameWorld world, NavGrid grid, int startX, int startY, int radius) {
+            NavMesh mesh = world.navMesh;
+            if (mesh == null || mesh.grid != grid || mesh.radius != radius) return null;
+            return new PathContext(grid, mesh, null);
+        }
+
+        @Override
+        public int findPath(PathContext context, int startX, int startY, int goalX, int goalY, int radius, int[] pathOut) {
+            NavMesh mesh = (NavMesh) context.engine;
+            int length = mesh.findPath(startX, startY, goalX, goalY, pathOut);
+            lastExpansions = mesh.lastExpansions;
+            return length;
+        }
+
+        @Override public int getLastExpansions() { return lastExpansions; }
+        @Override public boolean isThreadSafe() { return false; }
+        @Override public boolean isSmoothable() { return false; } // already straight between its corners
+        @Override public boolean followsCosts() { return false; }
+    }
+
+    static class Landmarks implements PathStrategy {
+        @Override public Pathfinder.Mode getMode() { return Pathfinder.Mode.ASTAR_LANDMARKS; }
+
+        @Override
+        public PathContext prepare(GameWorld world, NavGrid grid, int startX, int startY, int radius) {
+            LandmarkHeuristic landmarks = world.landmarks;
+            if (landmarks == null || landmarks.grid != grid || !landmarks.isReady()) return null;
+            AStarEngine engine = new AStarEngine(grid, landmarks, costsOf(world));
+            return new PathContext(grid, engine, engine.costs);
+        }
+
+        @Override
+        public int findPath(PathContext context, int startX, int startY, int goalX, int goalY, int radius, int[] pathOut) {
+            return ((AStarEngine) context.engine).findPath(startX, startY, goalX, goalY, radius, pathOut);
+        }
+
+        @Override public int getLastExpansions() { return AStarEngine.lastExpansionCount(); }
+        @Override public boolean isThreadSafe() { return true; }
+        @Override public boolean isSmoothable() { return true; }
+        @Override public boolean followsCosts() { return true; }
+    }
+}
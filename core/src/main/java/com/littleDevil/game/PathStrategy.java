@@ -0,0 +1,36 @@
+package com.littleDevil.game;
+
+/**
+ * One pathfinding algorithm behind Pathfinder and PathRequestService.
+ * Implementations are created through PathStrategies, so a mode can be swapped for another
+ * implementation (or an experiment) without touching the enemies.
+ */
+public interface PathStrategy {
+
+    Pathfinder.Mode getMode();
+
+    /**
+     * Takes what a request on grid needs from the world, on the render thread.
+     * @return null when the data this strategy needs is not built for the grid and agent radius, plain A* answers then
+     */
+    PathContext prepare(GameWorld world, NavGrid grid, int startX, int startY, int radius);
+
+    /**
+     * Writes the tile indices of a path (start first) into pathOut, which holds at least context.grid.size() entries.
+     * Only reads the context, so thread safe strategies can run it on a path worker.
+     * @return number of tiles written, 0 when no path was found
+     */
+    int findPath(PathContext context, int startX, int startY, int goalX, int goalY, int radius, int[] pathOut);
+
+    // nodes expanded by the last findPath (on the calling thread for thread safe strategies)
+    int getLastExpansions();
+
+    // whether one instance may be used by several path workers at once
+    boolean isThreadSafe();
+
+    // whether paths should be string-pulled afterwards, false when they already only hold corners
+    boolean isSmoothable();
+
+    // whether the path is the cheapest one under the world's CostLayer, not just the shortest one
+    boolean followsCosts();
+}
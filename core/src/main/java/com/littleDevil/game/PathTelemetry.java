@@ -0,0 +1,73 @@
+package com.littleDevil.game;
+
+import java.util.Arrays;
+
+/**
+ * Cost of the solved path requests per pathfinder mode and request class: count, time, expanded nodes and failures.
+ * Recorded by Pathfinder and the path workers, read by the PathAutoSelector and for comparing modes in a running game.
+ * Reset when a new map is generated, the numbers are only comparable on the same map.
+ * Requests in AUTO mode are always recorded, the selector needs them; the others only while enabled,
+ * classifying a request walks a line of sight.
+ */
+public class PathTelemetry {
+
+    public static final int LONG_DISTANCE = 24; // chebyshev tiles from which a request counts as long
+
+    // open requests have a straight line to the goal that only touches the agent's clearance
+    public enum RequestClass { SHORT_OPEN, SHORT_OBSTRUCTED, LONG_OPEN, LONG_OBSTRUCTED }
+
+    public boolean enabled = false; // record requests of the fixed modes too, set on the render thread
+
+    private static final int MODES = Pathfinder.Mode.values().length;
+    private static final int CLASSES = RequestClass.values().length;
+
+    private final long[] requests = new long[MODES * CLASSES];
+    private final long[] nanos = new long[MODES * CLASSES];
+    private final long[] expansions = new long[MODES * CLASSES];
+    private final long[] failures = new long[MODES * CLASSES];
+
+    public static RequestClass classify(NavGrid grid, int startX, int startY, int goalX, int goalY) {
+        boolean isLong = Math.max(Math.abs(goalX - startX), Math.abs(goalY - startY)) > LONG_DISTANCE;
+        boolean isOpen = grid.hasLineOfSight(startX, startY, goalX, goalY, 0);
+        if (isLong) return isOpen ? RequestClass.LONG_OPEN : RequestClass.LONG_OBSTRUCTED;
+        return isOpen ? RequestClass.SHORT_OPEN : RequestClass.SHORT_OBSTRUCTED;
+    }
+
+    public synchronized void record(Pathfinder.Mode mode, RequestClass requestClass, long elapsedNanos, int expanded, boolean found) {
+        int i = slot(mode, requestClass);
+        requests[i]++;
+        nanos[i] += elapsedNanos;
+        expansions[i] += expanded;
+        if (!found) failures[i]++;
+    }
+
+    public synchronized long getRequests(Pathfinder.Mode mode, RequestClass requestClass) {
+        return requests[slot(mode, requestClass)];
+    }
+
+    public synchronized long getFailures(Pathfinder.Mode mode, RequestClass requestClass) {
+        return failures[slot(mode, requestClass)];
+    }
+
+    // mean search time in microseconds, 0 without requests
+    public synchronized float getAverageMicros(Pathfinder.Mode mode, RequestClass requestClass) {
+        int i = slot(mode, requestClass);
+        return requests[i] == 0 ? 0f : nanos[i] / 1000f / requests[i];
+    }
+
+    public synchronized float getAverageExpansions(Pathfinder.Mode mode, RequestClass requestClass) {
+        int i = slot(mode, requestClass);
+        return requests[i] == 0 ? 0f : expansions[i] / (float) requests[i];
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(requests, 0);
+        Arrays.fill(nanos, 0);
+        Arrays.fill(expansions, 0);
+        Arrays.fill(failures, 0);
+    }
+
+    private static int slot(Pathfinder.Mode mode, RequestClass requestClass) {
+        return mode.ordinal() * CLASSES + requestClass.ordinal();
+    }
+}
@@ -1,11 +1,19 @@
 package com.littleDevil.game;
 
-import java.util.*;
+import java.util.EnumMap;
 
-public class Pathfinder {
+public class Pathfinder implements TileChangeListener {
+
+    // search used for new paths, selected per world with GameWorld.pathfinderMode,
+    // AUTO lets the world's PathAutoSelector pick one per request from the measured costs
+    public enum Mode { ASTAR, JPS_PLUS, HIERARCHICAL, INCREMENTAL, MULTI_RESOLUTION, NAVMESH, ASTAR_LANDMARKS, AUTO }
+
+    public static final int COLLISION_PADDING = 1; // 1-tile offset for collision padding
 
     private GameWorld world;
-    private boolean[][] currentGrid; // cached grid used for the current pathfinding run
+    private final EnumMap<Mode, PathStrategy> strategies = new EnumMap<>(Mode.class); // own instances, the incremental one keeps this enemy's tree
+    private int[] pathBuffer = new int[0];
+    public boolean lastFromCache = false; // the last findPath was answered by the path cache
 
     public Pathfinder(GameWorld world) {
         this.world = world;
@@ -14,105 +22,83 @@ public class Pathfinder {
     /**
      * Finds a path between two points using the specified grid.
      * The grid can be either the coarse or detailed one (passed by reference).
+     * The returned path may be shared with the path cache, retain it to keep it.
      */
-    public List<Node> findPath(int startX, int startY, int goalX, int goalY) {
-        this.currentGrid = world.collisionGrid;
-
-        // Bounds check early to avoid expensive pathfinding when out of range
-        if (!isInBounds(startX, startY) || !isInBounds(goalX, goalY))
-            return Collections.emptyList();
-
-        Node start = new Node(startX, startY);
-        Node goal = new Node(goalX, goalY);
-
-        PriorityQueue<Node> open = new PriorityQueue<>();
-        HashSet<Node> closed = new HashSet<>();
-        open.add(start);
-
-        while (!open.isEmpty()) {
-            Node current = open.poll();
-
-            if (current.equals(goal))
-                return reconstructPath(current);
-
-            closed.add(current);
-
-            for (Node neighbor : getNeighbors(current)) {
-                if (!isInBounds(neighbor.x, neighbor.y)) continue;
-                if (isBlocked(neighbor.x, neighbor.y, 1)) continue; // 1-tile offset for collision padding
-                if (closed.contains(neighbor)) continue;
-
-                float newCost = current.gCost + distance(current, neighbor);
-
-                Optional<Node> existing = open.stream()
-                    .filter(n -> n.equals(neighbor))
-                    .findFirst();
-
-                if (!existing.isPresent() || newCost < existing.get().gCost) {
-                    neighbor.gCost = newCost;
-                    neighbor.hCost = heuristic(neighbor, goal);
-                    neighbor.parent = current;
+    public PackedPath findPath(int startX, int startY, int goalX, int goalY) {
+        return findPath(startX, startY, goalX, goalY, COLLISION_PADDING);
+    }
 
-                    if (!existing.isPresent()) open.add(neighbor);
-                }
-            }
+    /**
+     * Same as findPath, for an agent that needs radius tiles of clearance around its tile.
+     */
+    public PackedPath findPath(int startX, int startY, int goalX, int goalY, int radius) {
+        PathCache cache = world.pathCache;
+        int costVersion = PathCache.costVersionOf(weighsCosts(world.pathfinderMode) ? world.costLayer : null);
+        if (cache != null) {
+            PackedPath cached = cache.get(world.pathfinderMode, world.gridVersion, costVersion, startX, startY, goalX, goalY, radius);
+            lastFromCache = cached != null;
+            if (cached != null) return cached;
         }
 
-        return Collections.emptyList(); // no path found
+        lastFromCache = false;
+        PackedPath path = solve(startX, startY, goalX, goalY, radius);
+        if (cache != null) cache.put(world.pathfinderMode, world.gridVersion, costVersion, startX, startY, goalX, goalY, radius, path);
+        return path;
     }
 
-    // ========================
-    // --- HELPER FUNCTIONS ---
-    // ========================
-
-    private boolean isInBounds(int x, int y) {
-        return y >= 0 && y < currentGrid.length && x >= 0 && x < currentGrid[0].length;
-    }
+    private PackedPath solve(int startX, int startY, int goalX, int goalY, int radius) {
+        NavGrid grid = world.navGrid;
+        if (pathBuffer.length < grid.size()) pathBuffer = new int[grid.size()];
+
+        Mode mode = world.pathfinderMode;
+        PathTelemetry telemetry = world.pathTelemetry;
+        PathTelemetry.RequestClass requestClass = mode == Mode.AUTO || telemetry.enabled
+            ? PathTelemetry.classify(grid, startX, startY, goalX, goalY) : null;
+        if (mode == Mode.AUTO) {
+            boolean costs = world.useTraversalCosts && world.costLayer != null;
+            mode = world.autoSelector.select(telemetry, requestClass, candidate -> !costs || strategy(candidate).followsCosts());
+        }
 
-    private boolean isBlocked(int tileX, int tileY, int offset) {
-        // Check a square around (tileX, tileY) with size offset
-        for (int y = tileY - offset; y <= tileY + offset; y++) {
-            for (int x = tileX - offset; x <= tileX + offset; x++) {
-                if (!isInBounds(x, y)) continue;
-                if (currentGrid[y][x]) return true;
-            }
+        PathStrategy strategy = strategy(mode);
+        PathContext context = strategy.prepare(world, grid, startX, startY, radius);
+        if (context == null) {
+            strategy = strategy(Mode.ASTAR);
+            context = strategy.prepare(world, grid, startX, startY, radius);
         }
-        return false;
-    }
 
-    private float heuristic(Node a, Node b) {
-        // Euclidean distance gives smooth diagonals
-        float dx = a.x - b.x;
-        float dy = a.y - b.y;
-        return (float) Math.sqrt(dx * dx + dy * dy);
+        long startTime = System.nanoTime();
+        int length = strategy.findPath(context, startX, startY, goalX, goalY, radius, pathBuffer);
+        if (requestClass != null) {
+            telemetry.record(strategy.getMode(), requestClass, System.nanoTime() - startTime, strategy.getLastExpansions(), length > 0);
+        }
+        // empty when no path found
+        return PathSmoother.toPath(grid, context.costs, pathBuffer, length, radius, world.smoothPaths && strategy.isSmoothable());
     }
 
-    private float distance(Node a, Node b) {
-        // Diagonals cost slightly more than straight movement
-        int dx = Math.abs(a.x - b.x);
-        int dy = Math.abs(a.y - b.y);
-        return (dx + dy == 2) ? 1.4142f : 1f; // √2 for diagonals
+    /**
+     * True when requests in the mode are weighted by the world's cost layer. Their paths depend on where the
+     * enemies stand right now, so they are cached per cost layer version and not replaced by a straight chase through a crowd.
+     */
+    public boolean weighsCosts(Mode mode) {
+        if (!world.useTraversalCosts || world.costLayer == null) return false;
+        return mode == Mode.AUTO || strategy(mode).followsCosts(); // AUTO only picks cost-following modes then
     }
 
-    private List<Node> getNeighbors(Node node) {
-        List<Node> result = new ArrayList<>(8);
-        for (int dx = -1; dx <= 1; dx++) {
-            for (int dy = -1; dy <= 1; dy++) {
-                if (dx == 0 && dy == 0) continue;
-                result.add(new Node(node.x + dx, node.y + dy));
-            }
+    private PathStrategy strategy(Mode mode) {
+        PathStrategy strategy = strategies.get(mode);
+        if (strategy == null) {
+            strategy = PathStrategies.create(mode);
+            strategies.put(mode, strategy);
         }
-        return result;
+        return strategy;
     }
 
-    private List<Node> reconstructPath(Node goal) {
-        List<Node> path = new ArrayList<>();
-        Node current = goal;
-        while (current != null) {
-            path.add(current);
-            current = current.parent;
+    // lets the incremental planner repair its tree after tiles in the rectangle changed
+    @Override
+    public void onTilesChanged(NavGrid grid, int minX, int minY, int maxX, int maxY) {
+        PathStrategy incremental = strategies.get(Mode.INCREMENTAL);
+        if (incremental instanceof PathStrategies.Incremental) {
+            ((PathStrategies.Incremental) incremental).onTilesChanged(grid, minX, minY, maxX, maxY);
         }
-        Collections.reverse(path);
-        return path;
     }
 }
@@ -25,6 +25,9 @@ public class Player {
 
     // Collision
     public int collisionOffsetX = -4, collisionOffsetY = -16, collisionWidth = 8, collisionHeight = 4;
+    public int colliderHandle = -1; // collision box in GameWorld.colliders
+    public int triggerHandle = -1;  // tracking entry in GameWorld.triggers
+    private final TileSweep sweep = new TileSweep(); // moves the collision box through the tiles
 
     // Dash
     private boolean isDashing = false;
@@ -110,25 +113,27 @@ public class Player {
             performAttack();
 
         // Apply movement
+        float stepX, stepY;
         if (isDashing) {
             dashTime -= delta;
-            x += dashDirX * dashSpeed * delta;
-            y += dashDirY * dashSpeed * delta;
+            stepX = dashDirX * dashSpeed * delta;
+            stepY = dashDirY * dashSpeed * delta;
             if (dashTime <= 0) { isDashing = false; dashTimer = dashCooldown; }
         } else if (isAttacking) {
             attackTimer -= delta;
-            x -= attackDirX * 10f * delta;
-            y -= attackDirY * 10f * delta;
+            stepX = -attackDirX * 10f * delta;
+            stepY = -attackDirY * 10f * delta;
             if (attackTimer <= 0) isAttacking = false;
             updateAttackAnimation();
         } else {
-            x += moveX * speed * delta;
-            y += moveY * speed * delta;
+            stepX = moveX * speed * delta;
+            stepY = moveY * speed * delta;
         }
 
-        // Collision sliding
-        if (isBlocked(x, prevY, world)) x = prevX;
-        if (isBlocked(prevX, y, world)) y = prevY;
+        // Collision: sweep the whole step so a dash can not pass through thin walls, slide along them
+        world.moveBox(sweep, x + collisionOffsetX, y + collisionOffsetY, collisionWidth, collisionHeight, stepX, stepY);
+        x += sweep.moveX;
+        y += sweep.moveY;
 
         // Walking sound
         boolean moving = moveX != 0 || moveY != 0;
@@ -148,23 +153,13 @@ public class Player {
     }
 
     // --- Collision helpers ---
-    private boolean checkCollision(float testX, float testY, GameWorld.TileType type, GameWorld world) {
-        int left = (int)((testX + collisionOffsetX) / world.tileSize);
-        int right = (int)((testX + collisionOffsetX + collisionWidth) / world.tileSize);
-        int bottom = (int)((testY + collisionOffsetY) / world.tileSize);
-        int top = (int)((testY + collisionOffsetY + collisionHeight) / world.tileSize);
-
-        for (int y = bottom; y <= top; y++)
-            for (int x = left; x <= right; x++)
-                if (world.isTileType(x, y, type)) return true;
-        return false;
+    private int queryTiles(float testX, float testY, GameWorld world) {
+        return world.tiles.queryBox(testX + collisionOffsetX, testY + collisionOffsetY, collisionWidth, collisionHeight, world.tileSize);
     }
 
-    // helper functions that return if player is interacting with the environment
-    public boolean isBlocked(float x, float y, GameWorld world) { return checkCollision(x, y, GameWorld.TileType.BLOCK, world); }
-    public boolean isOnStairs(GameWorld world) { return checkCollision(x, y, GameWorld.TileType.STAIRS, world); }
-    public boolean isOnBoost(GameWorld world) { return checkCollision(x, y, GameWorld.TileType.BOOST, world); }
-    public boolean isOnAltar(GameWorld world) { return checkCollision(x, y, GameWorld.TileType.ALTAR, world); }
+    // helper functions that return if player is interacting with the environment,
+    // altars and boosts report the player through their trigger volumes
+    public boolean isOnStairs(GameWorld world) { return (queryTiles(x, y, world) & TileLayer.STAIRS) != 0; }
 
     // --- Animation of player ---
     private void updateAnimation(float delta, boolean moving) {
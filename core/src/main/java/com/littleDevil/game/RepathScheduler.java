@@ -0,0 +1,131 @@
+package com.littleDevil.game;
+
+/**
+ * Decides which enemies get a new path this frame.
+ * Every enemy has a repath interval that grows with its distance to the player, so attackers next to the
+ * player repath often and far away ones rarely. Enemies whose interval ran out are ranked by how overdue
+ * they are, enemies without a path (or at its end) go first, and at most maxSolvesPerFrame searches run per frame.
+ * The rest stay in line for the next frame, which keeps the repath cost per frame fixed.
+ * The due enemies are only heapified, not sorted: a frame pops the few it serves in O(log n) each.
+ */
+public class RepathScheduler {
+
+    public static final int DEFAULT_SOLVES_PER_FRAME = 4;
+    public static final float MIN_INTERVAL = 0.2f; // seconds between repaths right next to the player
+    public static final float MAX_INTERVAL = 2f;   // seconds between repaths at FAR_DISTANCE and beyond
+    public static final float FAR_DISTANCE = 300f; // pixels
+
+    private static final float NO_PATH_PRIORITY = 1000f; // ranks path-less enemies above any overdue one
+
+    public int maxSolvesPerFrame;
+
+    // stats of the last update
+    public int solvesLastFrame, deferredLastFrame;
+    public long totalSolves = 0;
+
+    // due enemies, a max-heap by priority during the solves
+    private Enemy[] candidates = new Enemy[16];
+    private float[] priorities = new float[16];
+    private int[] order = new int[16]; // position in the enemy list, equal priorities keep list order
+
+    public RepathScheduler() {
+        this(DEFAULT_SOLVES_PER_FRAME);
+    }
+
+    public RepathScheduler(int maxSolvesPerFrame) {
+        this.maxSolvesPerFrame = maxSolvesPerFrame;
+    }
+
+    public void update(float delta, Player player, GameWorld world) {
+        int count = 0, position = 0;
+        for (Enemy enemy : world.enemies) {
+            position++;
+            if (!enemy.isAlive) continue;
+            enemy.pathTimer += delta;
+
+            // the shared flow field already knows the way, and pending requests will arrive on their own
+            if (enemy.pathPending || (world.useFlowField && enemy.isFollowingFlowField(world))) continue;
+
+            float priority = getPriority(enemy, player);
+            if (priority < 1f) continue;
+            if (count == candidates.length) grow();
+            candidates[count] = enemy;
+            priorities[count] = priority;
+            order[count++] = position;
+        }
+
+        for (int i = count / 2 - 1; i >= 0; i--) siftDown(i, count);
+
+        // cache hits and direct chases are cheap, only real searches use up the budget
+        int solves = 0, size = count;
+        while (size > 0 && solves < maxSolvesPerFrame) {
+            Enemy enemy = candidates[0];
+            swap(0, --size);
+            siftDown(0, size);
+            if (enemy.repath(player, world)) solves++;
+        }
+
+        solvesLastFrame = solves;
+        deferredLastFrame = size;
+        totalSolves += solves;
+        for (int i = 0; i < count; i++) candidates[i] = null;
+    }
+
+    /**
+     * How overdue the enemy's repath is: time since its last repath divided by its interval.
+     * 1 or more means a repath is due.
+     */
+    public float getPriority(Enemy enemy, Player player) {
+        if (enemy.needsPath()) return NO_PATH_PRIORITY + enemy.pathTimer;
+        return enemy.pathTimer / getInterval(enemy.distanceToPlayer(player));
+    }
+
+    public static float getInterval(float distance) {
+        float distanceFactor = Math.min(distance / FAR_DISTANCE, 1f);
+        return MIN_INTERVAL + (MAX_INTERVAL - MIN_INTERVAL) * distanceFactor;
+    }
+
+    // ========================
+    // --- HELPER FUNCTIONS ---
+    // ========================
+
+    // whether candidate a is served before candidate b
+    private boolean before(int a, int b) {
+        return priorities[a] > priorities[b] || (priorities[a] == priorities[b] && order[a] < order[b]);
+    }
+
+    private void siftDown(int i, int size) {
+        while (true) {
+            int first = i, left = 2 * i + 1, right = left + 1;
+            if (left < size && before(left, first)) first = left;
+            if (right < size && before(right, first)) first = right;
+            if (first == i) return;
+            swap(i, first);
+            i = first;
+        }
+    }
+
+    private void swap(int a, int b) {
+        Enemy enemy = candidates[a];
+        candidates[a] = candidates[b];
+        candidates[b] = enemy;
+        float priority = priorities[a];
+        priorities[a] = priorities[b];
+        priorities[b] = priority;
+        int position = order[a];
+        order[a] = order[b];
+        order[b] = position;
+    }
+
+    private void grow() {
+        Enemy[] newCandidates = new Enemy[candidates.length * 2];
+        float[] newPriorities = new float[candidates.length * 2];
+        int[] newOrder = new int[candidates.length * 2];
+        System.arraycopy(candidates, 0, newCandidates, 0, candidates.length);
+        System.arraycopy(priorities, 0, newPriorities, 0, priorities.length);
+        System.arraycopy(order, 0, newOrder, 0, order.length);
+        candidates = newCandidates;
+        priorities = newPriorities;
+        order = newOrder;
+    }
+}
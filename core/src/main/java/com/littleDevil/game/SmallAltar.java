@@ -4,7 +4,7 @@ import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 
-public class SmallAltar {
+public class SmallAltar implements TriggerSystem.Listener {
 
     private Texture spriteSheet;
     private TextureRegion[] frames;
@@ -20,6 +20,7 @@ public class SmallAltar {
 
     private boolean isLoaded = false; // altar fully charged
     private boolean cycling = false;  // cycling between frames 4–8
+    private boolean playerInside = false; // set by the trigger volume over this altar's interaction box
 
     private Boost boost = null;
     private boolean boostSpawned = false;
@@ -79,7 +80,7 @@ public class SmallAltar {
             }
 
             // If player steps on it while loaded
-            if (player.isOnBoost(gameWorld)) {
+            if (playerInside) {
                 boost.applyEffect(player);
                 resetAltar();
             }
@@ -88,6 +89,16 @@ public class SmallAltar {
         currentFrame = frames[frameIndex];
     }
 
+    @Override
+    public void onEnter(TriggerSystem.Volume volume, Object entity) {
+        playerInside = true;
+    }
+
+    @Override
+    public void onExit(TriggerSystem.Volume volume, Object entity) {
+        playerInside = false;
+    }
+
     private void resetAltar() {
         frameIndex = 0;
         isLoaded = false;
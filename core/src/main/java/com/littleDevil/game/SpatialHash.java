@@ -0,0 +1,160 @@
+package com.littleDevil.game;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid of square cells over the world that indexes entities by position, so "who is near here"
+ * only looks at the few cells around the point instead of every entity.
+ * Every cell is an intrusive doubly linked list over slot arrays: moving an entity inside its cell is one
+ * compare, moving it to another cell relinks two slots, and queries visit the slots without allocating.
+ * Positions outside the world are clamped into the border cells.
+ * Entities must not be inserted, moved or removed from inside a visitor.
+ */
+public class SpatialHash<T> {
+
+    public interface Visitor<T> {
+        void visit(T item);
+    }
+
+    private static final int NONE = -1;
+
+    public final float cellSize;
+    public final int columns, rows;
+
+    private final int[] heads; // first slot per cell
+    private Object[] items = new Object[16];
+    private float[] xs = new float[16], ys = new float[16]; // position at the last insert / move
+    private int[] cells = new int[16];  // cell per slot, NONE for free slots
+    private int[] next = new int[16], prev = new int[16];
+    private int freeHead = NONE, used = 0, size = 0;
+
+    public SpatialHash(float worldWidth, float worldHeight, float cellSize) {
+        this.cellSize = cellSize;
+        this.columns = Math.max(1, (int) Math.ceil(worldWidth / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(worldHeight / cellSize));
+        this.heads = new int[columns * rows];
+        Arrays.fill(heads, NONE);
+    }
+
+    /**
+     * Adds an entity at the position.
+     * @return handle for move and remove
+     */
+    public int insert(T item, float x, float y) {
+        int slot;
+        if (freeHead != NONE) {
+            slot = freeHead;
+            freeHead = next[slot];
+        } else {
+            if (used == items.length) grow();
+            slot = used++;
+        }
+        items[slot] = item;
+        xs[slot] = x;
+        ys[slot] = y;
+        link(slot, cellOf(x, y));
+        size++;
+        return slot;
+    }
+
+    // call whenever the entity's position changed, cheap while it stays in its cell
+    public void move(int handle, float x, float y) {
+        xs[handle] = x;
+        ys[handle] = y;
+        int cell = cellOf(x, y);
+        if (cell == cells[handle]) return;
+        unlink(handle);
+        link(handle, cell);
+    }
+
+    public void remove(int handle) {
+        if (cells[handle] == NONE) return;
+        unlink(handle);
+        items[handle] = null;
+        cells[handle] = NONE;
+        next[handle] = freeHead;
+        freeHead = handle;
+        size--;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Visits every entity whose last position lies within radius of (x, y).
+     */
+    @SuppressWarnings("unchecked")
+    public void queryRadius(float x, float y, float radius, Visitor<T> visitor) {
+        float radius2 = radius * radius;
+        int minColumn = column(x - radius), maxColumn = column(x + radius);
+        int minRow = row(y - radius), maxRow = row(y + radius);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                for (int slot = heads[row * columns + column]; slot != NONE; slot = next[slot]) {
+                    float dx = xs[slot] - x, dy = ys[slot] - y;
+                    if (dx * dx + dy * dy <= radius2) visitor.visit((T) items[slot]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Visits every entity whose last position lies in the rectangle (inclusive).
+     */
+    @SuppressWarnings("unchecked")
+    public void queryRect(float minX, float minY, float maxX, float maxY, Visitor<T> visitor) {
+        int minColumn = column(minX), maxColumn = column(maxX);
+        int minRow = row(minY), maxRow = row(maxY);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                for (int slot = heads[row * columns + column]; slot != NONE; slot = next[slot]) {
+                    float px = xs[slot], py = ys[slot];
+                    if (px >= minX && px <= maxX && py >= minY && py <= maxY) visitor.visit((T) items[slot]);
+                }
+            }
+        }
+    }
+
+    // ========================
+    // --- HELPER FUNCTIONS ---
+    // ========================
+
+    private int column(float x) {
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor(x / cellSize)));
+    }
+
+    private int row(float y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / cellSize)));
+    }
+
+    private int cellOf(float x, float y) {
+        return row(y) * columns + column(x);
+    }
+
+    private void link(int slot, int cell) {
+        int head = heads[cell];
+        cells[slot] = cell;
+        prev[slot] = NONE;
+        next[slot] = head;
+        if (head != NONE) prev[head] = slot;
+        heads[cell] = slot;
+    }
+
+    private void unlink(int slot) {
+        int before = prev[slot], after = next[slot];
+        if (before != NONE) next[before] = after;
+        else heads[cells[slot]] = after;
+        if (after != NONE) prev[after] = before;
+    }
+
+    private void grow() {
+        int capacity = items.length * 2;
+        items = Arrays.copyOf(items, capacity);
+        xs = Arrays.copyOf(xs, capacity);
+        ys = Arrays.copyOf(ys, capacity);
+        cells = Arrays.copyOf(cells, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+    }
+}
@@ -0,0 +1,10 @@
+package com.littleDevil.game;
+
+/**
+ * Told by GameWorld when collision objects appeared, disappeared or moved at runtime.
+ */
+public interface TileChangeListener {
+
+    // tiles in the rectangle (inclusive) changed, grid is the NavGrid the world published with the change
+    void onTilesChanged(NavGrid grid, int minX, int minY, int maxX, int maxY);
+}
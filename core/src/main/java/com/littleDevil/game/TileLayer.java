@@ -0,0 +1,167 @@
+package com.littleDevil.game;
+
+/**
+ * Tile flags of the world in one flat, row-major byte array (index y * width + x, like NavGrid).
+ * Every collision object ORs its flag into the tiles under its collision box, so a tile that is both
+ * stairs and wall keeps both. A whole collision box is checked with one query that returns the OR of its tiles.
+ * Each flag also has a bitset (one bit per tile) for scanning a layer without reading the others.
+ * A summed-area table counts the BLOCK tiles, so "is anything blocked under this box" is four reads
+ * whatever the box size. Changing tiles only refreshes the table right and above the changed corner,
+ * on the next blocked query.
+ */
+public class TileLayer {
+
+    public static final int BORDER = 1;    // type 1, world border
+    public static final int OBSTACLE = 2;  // type 2, walls and props, the only tiles enemies path around
+    public static final int ALTAR = 4;     // type 3
+    public static final int BOOST = 8;     // type 4
+    public static final int STAIRS = 16;   // type 5
+    public static final int BLOCK = BORDER | OBSTACLE; // tiles the player and enemies can not enter
+
+    private static final int FLAG_COUNT = 5;
+
+    public final int width, height;
+    private final byte[] flags;
+    private final long[][] bits; // [flag bit][tile / 64]
+    private final int[] blockSums; // BLOCK tiles in [0, x) x [0, y) at y * (width + 1) + x
+    private int dirtyX, dirtyY;    // corner from which blockSums is out of date, width / height when clean
+
+    public TileLayer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.flags = new byte[width * height];
+        this.bits = new long[FLAG_COUNT][(width * height + 63) / 64];
+        this.blockSums = new int[(width + 1) * (height + 1)];
+        this.dirtyX = width;
+        this.dirtyY = height;
+    }
+
+    // flag of a CollisionObject type, 0 for types that do not mark tiles
+    public static int flagOf(int type) {
+        return type >= 1 && type <= FLAG_COUNT ? 1 << (type - 1) : 0;
+    }
+
+    /**
+     * Adds the flags to every tile of the rectangle (inclusive tile coordinates, clipped to the layer).
+     */
+    public void mark(int minX, int minY, int maxX, int maxY, int flag) {
+        minX = Math.max(0, minX);
+        minY = Math.max(0, minY);
+        maxX = Math.min(width - 1, maxX);
+        maxY = Math.min(height - 1, maxY);
+        for (int y = minY; y <= maxY; y++) {
+            for (int i = y * width + minX, end = y * width + maxX; i <= end; i++) {
+                flags[i] |= (byte) flag;
+                for (int f = 0; f < FLAG_COUNT; f++) {
+                    if ((flag & (1 << f)) != 0) bits[f][i >>> 6] |= 1L << i;
+                }
+            }
+        }
+        if ((flag & BLOCK) != 0 && minX <= maxX && minY <= maxY) {
+            dirtyX = Math.min(dirtyX, minX);
+            dirtyY = Math.min(dirtyY, minY);
+        }
+    }
+
+    /**
+     * Removes all flags from the tiles of the rectangle (inclusive tile coordinates, clipped to the layer).
+     */
+    public void clear(int minX, int minY, int maxX, int maxY) {
+        minX = Math.max(0, minX);
+        minY = Math.max(0, minY);
+        maxX = Math.min(width - 1, maxX);
+        maxY = Math.min(height - 1, maxY);
+        if (minX > maxX || minY > maxY) return;
+        for (int y = minY; y <= maxY; y++) {
+            for (int i = y * width + minX, end = y * width + maxX; i <= end; i++) {
+                flags[i] = 0;
+                for (int f = 0; f < FLAG_COUNT; f++) bits[f][i >>> 6] &= ~(1L << i);
+            }
+        }
+        dirtyX = Math.min(dirtyX, minX);
+        dirtyY = Math.min(dirtyY, minY);
+    }
+
+    // flags of the tile, 0 outside the layer
+    public int get(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return 0;
+        return flags[y * width + x];
+    }
+
+    public boolean has(int x, int y, int mask) {
+        return (get(x, y) & mask) != 0;
+    }
+
+    /**
+     * OR of the flags of all tiles in the rectangle (inclusive tile coordinates), tiles outside the layer add nothing.
+     */
+    public int query(int minX, int minY, int maxX, int maxY) {
+        minX = Math.max(0, minX);
+        minY = Math.max(0, minY);
+        maxX = Math.min(width - 1, maxX);
+        maxY = Math.min(height - 1, maxY);
+        int result = 0;
+        for (int y = minY; y <= maxY; y++) {
+            for (int i = y * width + minX, end = y * width + maxX; i <= end; i++) result |= flags[i];
+        }
+        return result;
+    }
+
+    /**
+     * Number of BLOCK tiles in the rectangle (inclusive tile coordinates, clipped to the layer), four table reads.
+     */
+    public int countBlocked(int minX, int minY, int maxX, int maxY) {
+        minX = Math.max(0, minX);
+        minY = Math.max(0, minY);
+        maxX = Math.min(width - 1, maxX);
+        maxY = Math.min(height - 1, maxY);
+        if (minX > maxX || minY > maxY) return 0;
+        if (dirtyX < width || dirtyY < height) refreshSums();
+
+        int stride = width + 1;
+        return blockSums[(maxY + 1) * stride + maxX + 1] - blockSums[minY * stride + maxX + 1]
+            - blockSums[(maxY + 1) * stride + minX] + blockSums[minY * stride + minX];
+    }
+
+    /**
+     * OR of the flags under a box in pixels, the same tiles the entities' collision checks cover.
+     */
+    public int queryBox(float left, float bottom, float width, float height, int tileSize) {
+        return query((int) (left / tileSize), (int) (bottom / tileSize),
+            (int) ((left + width) / tileSize), (int) ((bottom + height) / tileSize));
+    }
+
+    /**
+     * Next tile index at or after from that has the flag set, -1 when there is none.
+     * @param flag a single flag, not a mask
+     */
+    public int nextTile(int flag, int from) {
+        long[] words = bits[Integer.numberOfTrailingZeros(flag)];
+        int size = width * height;
+        if (from >= size) return -1;
+        int word = from >>> 6;
+        long current = words[word] & (-1L << from);
+        while (true) {
+            if (current != 0) {
+                int tile = word * 64 + Long.numberOfTrailingZeros(current);
+                return tile < size ? tile : -1;
+            }
+            if (++word == words.length) return -1;
+            current = words[word];
+        }
+    }
+
+    // recomputes the table entries right and above the dirty corner, the rest did not change
+    private void refreshSums() {
+        int stride = width + 1;
+        for (int y = dirtyY; y < height; y++) {
+            for (int x = dirtyX; x < width; x++) {
+                int blocked = (flags[y * width + x] & BLOCK) != 0 ? 1 : 0;
+                int i = (y + 1) * stride + x + 1;
+                blockSums[i] = blocked + blockSums[i - stride] + blockSums[i - 1] - blockSums[i - stride - 1];
+            }
+        }
+        dirtyX = width;
+        dirtyY = height;
+    }
+}
@@ -0,0 +1,153 @@
+package com.littleDevil.game;
+
+/**
+ * Continuous collision of a moving box against the tiles of a TileLayer.
+ * sweep finds the first tile the box would touch along its whole displacement (time of impact in [0, 1])
+ * and what is left of the move along that tile's face; move follows those slides until the move is used up.
+ * No matter how far the box moves in one frame it can not skip a tile, unlike testing only the end position.
+ * Tiles use the same coverage as the point checks: a box touching a tile border touches that tile,
+ * so boxes stop SKIN pixels in front of it. One instance holds the result of the last call, keep one per entity.
+ * The same slides also run against the exact boxes of an AabbTree, for the moves the rounded tiles stopped.
+ */
+public class TileSweep {
+
+    public static final int MAX_SLIDES = 3;   // sweeps per move: the first hit, then along up to two faces
+    private static final float SKIN = 0.01f;  // pixels kept between the box and the tile it hit
+
+    public float time;              // fraction of the displacement done before the hit, 1 without a hit
+    public int normalX, normalY;    // face normal of the hit tile, 0 without a hit
+    public float slideX, slideY;    // rest of the displacement along the hit face
+    public float moveX, moveY;      // displacement the box can do, including the skin
+    public boolean hitX, hitY;      // move: some sweep stopped on a face of that axis
+
+    private final AabbTree.Hit<Object> hit = new AabbTree.Hit<>(); // scratch for the sweeps against boxes
+
+    /**
+     * Sweeps the box (pixels) by (dx, dy) against the tiles with any of the mask flags.
+     * Tiles the box already overlaps are ignored, so a box stuck in a wall can leave it.
+     * @return whether a tile was hit
+     */
+    public boolean sweep(TileLayer tiles, int tileSize, int mask, float left, float bottom, float width, float height,
+                         float dx, float dy) {
+        float right = left + width, top = bottom + height;
+        time = 1f;
+        normalX = normalY = 0;
+
+        int minX = Math.max(0, floor(Math.min(left, left + dx) / tileSize));
+        int maxX = Math.min(tiles.width - 1, floor(Math.max(right, right + dx) / tileSize));
+        int minY = Math.max(0, floor(Math.min(bottom, bottom + dy) / tileSize));
+        int maxY = Math.min(tiles.height - 1, floor(Math.max(top, top + dy) / tileSize));
+        boolean open = mask == TileLayer.BLOCK && tiles.countBlocked(minX, minY, maxX, maxY) == 0;
+
+        for (int ty = minY; ty <= maxY && !open; ty++) {
+            for (int tx = minX; tx <= maxX; tx++) {
+                if ((tiles.get(tx, ty) & mask) == 0) continue;
+                float tileLeft = tx * tileSize, tileRight = tileLeft + tileSize;
+                float tileBottom = ty * tileSize, tileTop = tileBottom + tileSize;
+                if (right >= tileLeft && left < tileRight && top >= tileBottom && bottom < tileTop) continue;
+
+                float entryX, exitX, entryY, exitY;
+                if (dx > 0) {
+                    entryX = (tileLeft - right) / dx;
+                    exitX = (tileRight - left) / dx;
+                } else if (dx < 0) {
+                    entryX = (tileRight - left) / dx;
+                    exitX = (tileLeft - right) / dx;
+                } else if (right >= tileLeft && left < tileRight) {
+                    entryX = Float.NEGATIVE_INFINITY;
+                    exitX = Float.POSITIVE_INFINITY;
+                } else continue;
+
+                if (dy > 0) {
+                    entryY = (tileBottom - top) / dy;
+                    exitY = (tileTop - bottom) / dy;
+                } else if (dy < 0) {
+                    entryY = (tileTop - bottom) / dy;
+                    exitY = (tileBottom - top) / dy;
+                } else if (top >= tileBottom && bottom < tileTop) {
+                    entryY = Float.NEGATIVE_INFINITY;
+                    exitY = Float.POSITIVE_INFINITY;
+                } else continue;
+
+                float entry = Math.max(entryX, entryY);
+                if (entry < 0f || entry > 1f || entry >= Math.min(exitX, exitY) || entry >= time) continue;
+                time = entry;
+                if (entryX > entryY) {
+                    normalX = dx > 0 ? -1 : 1;
+                    normalY = 0;
+                } else {
+                    normalX = 0;
+                    normalY = dy > 0 ? -1 : 1;
+                }
+            }
+        }
+
+        return finishSweep(dx, dy);
+    }
+
+    /**
+     * Same as the tile sweep against the exact boxes of the mask's categories in the tree.
+     * @return whether a box was hit
+     */
+    public boolean sweep(AabbTree<Object> boxes, int mask, float left, float bottom, float width, float height,
+                         float dx, float dy) {
+        boxes.sweep(left, bottom, width, height, dx, dy, mask, hit);
+        time = hit.time;
+        normalX = hit.normalX;
+        normalY = hit.normalY;
+        hit.item = null;
+        return finishSweep(dx, dy);
+    }
+
+    /**
+     * Moves the box by (dx, dy), sliding along the faces it hits. The total displacement ends up in moveX / moveY.
+     */
+    public void move(TileLayer tiles, int tileSize, int mask, float left, float bottom, float width, float height,
+                     float dx, float dy) {
+        move(tiles, tileSize, null, mask, left, bottom, width, height, dx, dy);
+    }
+
+    /**
+     * Same as the tile move against the exact boxes of the mask's categories in the tree.
+     */
+    public void move(AabbTree<Object> boxes, int mask, float left, float bottom, float width, float height,
+                     float dx, float dy) {
+        move(null, 0, boxes, mask, left, bottom, width, height, dx, dy);
+    }
+
+    // slides against the tiles, or the boxes when tiles is null
+    private void move(TileLayer tiles, int tileSize, AabbTree<Object> boxes, int mask,
+                      float left, float bottom, float width, float height, float dx, float dy) {
+        float totalX = 0f, totalY = 0f;
+        boolean anyHitX = false, anyHitY = false;
+        for (int i = 0; i < MAX_SLIDES && (dx != 0f || dy != 0f); i++) {
+            boolean hit = tiles != null
+                ? sweep(tiles, tileSize, mask, left + totalX, bottom + totalY, width, height, dx, dy)
+                : sweep(boxes, mask, left + totalX, bottom + totalY, width, height, dx, dy);
+            totalX += moveX;
+            totalY += moveY;
+            if (!hit) break;
+            anyHitX |= normalX != 0;
+            anyHitY |= normalY != 0;
+            dx = slideX;
+            dy = slideY;
+        }
+        moveX = totalX;
+        moveY = totalY;
+        hitX = anyHitX;
+        hitY = anyHitY;
+    }
+
+    // displacement and slide of a sweep from its time and normal
+    private boolean finishSweep(float dx, float dy) {
+        moveX = dx * time + normalX * SKIN;
+        moveY = dy * time + normalY * SKIN;
+        slideX = normalX != 0 ? 0f : dx * (1f - time);
+        slideY = normalY != 0 ? 0f : dy * (1f - time);
+        return normalX != 0 || normalY != 0;
+    }
+
+    private static int floor(float value) {
+        return (int) Math.floor(value);
+    }
+}
@@ -0,0 +1,126 @@
+package com.littleDevil.game;
+
+import java.util.ArrayDeque;
+
+/**
+ * Runs all pending enemy searches on the render thread as resumable A* searches.
+ * Every frame they share one budget of node expansions (and optionally microseconds), handed out round robin,
+ * so frame time stays bounded no matter how many enemies ask for a path in the same frame.
+ * A search keeps its open and closed sets between frames in a pooled SearchState.
+ */
+public class TimeSlicedPathService implements PathService {
+
+    public static final int DEFAULT_EXPANSIONS_PER_FRAME = 2000;
+    private static final int MIN_SLICE = 64; // expansions a search gets at least when it is its turn
+
+    public int expansionsPerFrame;
+    public long microsPerFrame; // 0 = no time limit
+
+    private final ArrayDeque<Search> active = new ArrayDeque<>();
+    private final ArrayDeque<AStarEngine.SearchState> freeStates = new ArrayDeque<>();
+    private AStarEngine engine;
+    private int[] pathBuffer = new int[0];
+
+    public TimeSlicedPathService() {
+        this(DEFAULT_EXPANSIONS_PER_FRAME, 0);
+    }
+
+    public TimeSlicedPathService(int expansionsPerFrame, long microsPerFrame) {
+        this.expansionsPerFrame = expansionsPerFrame;
+        this.microsPerFrame = microsPerFrame;
+    }
+
+    // jump point and hierarchical searches are not resumable, enemies solve those inline
+    @Override
+    public boolean supports(Pathfinder.Mode mode) {
+        return mode == Pathfinder.Mode.ASTAR;
+    }
+
+    @Override
+    public void submit(Enemy enemy, GameWorld world, int startX, int startY, int goalX, int goalY, int radius) {
+        if (enemy.pathPending) return;
+
+        NavGrid grid = world.navGrid;
+        CostLayer costs = world.useTraversalCosts ? world.costLayer : null;
+        if (engine == null || engine.grid != grid || engine.costs != costs) engine = new AStarEngine(grid, null, costs);
+
+        AStarEngine.SearchState state = freeStates.isEmpty() ? new AStarEngine.SearchState() : freeStates.poll();
+        if (!engine.start(state, startX, startY, goalX, goalY, radius)) {
+            freeStates.add(state);
+            enemy.applyPath(PackedPath.EMPTY, world);
+            return;
+        }
+        enemy.pathPending = true;
+        active.add(new Search(enemy, engine, state, world.gridVersion, PathCache.costVersionOf(engine.costs), startX, startY));
+    }
+
+    @Override
+    public void update(GameWorld world) {
+        long deadline = microsPerFrame > 0 ? System.nanoTime() + microsPerFrame * 1000L : Long.MAX_VALUE;
+        int budget = expansionsPerFrame;
+
+        while (budget > 0 && !active.isEmpty() && System.nanoTime() < deadline) {
+            Search search = active.poll();
+            if (!search.enemy.isAlive || search.engine.grid != world.navGrid) {
+                finish(search, null, world); // outdated, the enemy asks again on its next repath
+                continue;
+            }
+
+            int slice = Math.min(budget, Math.max(MIN_SLICE, budget / (active.size() + 1)));
+            int before = search.state.expansions;
+            int status = search.engine.step(search.state, slice);
+            budget -= Math.max(1, search.state.expansions - before);
+
+            if (status == AStarEngine.RUNNING) active.add(search);
+            else finish(search, status == AStarEngine.FOUND ? buildPath(search, world.smoothPaths) : PackedPath.EMPTY, world);
+        }
+    }
+
+    private PackedPath buildPath(Search search, boolean smooth) {
+        NavGrid grid = search.engine.grid;
+        if (pathBuffer.length < grid.size()) pathBuffer = new int[grid.size()];
+        int length = AStarEngine.writePath(search.state.parent, search.state.goal, pathBuffer);
+        return PathSmoother.toPath(grid, search.engine.costs, pathBuffer, length, search.state.radius, smooth);
+    }
+
+    private void finish(Search search, PackedPath path, GameWorld world) {
+        search.enemy.pathPending = false;
+        freeStates.add(search.state);
+        if (path == null) return;
+
+        if (world.pathCache != null) {
+            AStarEngine.SearchState state = search.state;
+            world.pathCache.put(Pathfinder.Mode.ASTAR, search.gridVersion, search.costVersion, search.startX, search.startY,
+                state.goalX, state.goalY, state.radius, path);
+        }
+        search.enemy.applyPath(path, world);
+    }
+
+    public int getActiveSearchCount() {
+        return active.size();
+    }
+
+    @Override
+    public void dispose() {
+        active.clear();
+        freeStates.clear();
+    }
+
+    private static class Search {
+        final Enemy enemy;
+        final AStarEngine engine; // the engine the search was started with, submit replaces the shared one when costs change
+        final AStarEngine.SearchState state;
+        final int gridVersion, costVersion, startX, startY; // for the path cache key
+
+        Search(Enemy enemy, AStarEngine engine, AStarEngine.SearchState state,
+               int gridVersion, int costVersion, int startX, int startY) {
+            this.enemy = enemy;
+            this.engine = engine;
+            this.state = state;
+            this.gridVersion = gridVersion;
+            this.costVersion = costVersion;
+            this.startX = startX;
+            this.startY = startY;
+        }
+    }
+}
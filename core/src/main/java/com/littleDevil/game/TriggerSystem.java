@@ -0,0 +1,199 @@
+package com.littleDevil.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Trigger volumes: boxes in pixels that tell their listener when entity collision boxes enter, stay in and leave them.
+ * Volumes live in the world's collider tree under their own category, next to the entity boxes, so one tree
+ * holds everything. Entities are tracked by their collider handle and only tested after their box changed,
+ * against the few volumes the tree finds around it; standing still costs nothing and more volumes do not add
+ * per-frame work. Stay is reported on every such move that keeps the entity inside, not every frame; listeners
+ * that need "is someone inside" keep it from enter / exit.
+ * Every volume has a mask of the entity categories it reacts to (GameWorld.COLLIDER_PLAYER, COLLIDER_ENEMY);
+ * entities of a category no volume reacts to are not tested at all.
+ * Boxes overlap when they share area, like in AabbTree.
+ * Listeners must not add or remove volumes or entities from inside a callback.
+ */
+public class TriggerSystem {
+
+    public interface Listener {
+        void onEnter(Volume volume, Object entity);
+        default void onStay(Volume volume, Object entity) {}
+        void onExit(Volume volume, Object entity);
+    }
+
+    public static class Volume {
+        public final String name;         // identifies the volume in the callbacks
+        public final int mask;            // entity categories that trigger it
+        public final Listener listener;
+        public final float minX, minY, maxX, maxY;
+        private int handle = -1;          // entry in the collider tree, -1 once removed
+
+        Volume(String name, float minX, float minY, float maxX, float maxY, int mask, Listener listener) {
+            this.name = name;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.mask = mask;
+            this.listener = listener;
+        }
+    }
+
+    private final AabbTree<Object> colliders;
+    private final int volumeCategory; // category bit of the volumes in the collider tree
+    private final List<Volume> volumes = new ArrayList<>();
+    private int listenedMask = 0;     // union of the volume masks
+
+    // tracked entities, one slot per handle
+    private Object[] entities = new Object[8];
+    private int[] categories = new int[8];
+    private int[] colliderHandles = new int[8];   // entry of the entity box in the collider tree, -1 for free slots
+    private float[] boxes = new float[8 * 4];     // box of the last test per entity
+    private final List<List<Volume>> inside = new ArrayList<>(); // volumes each entity is in
+    private int freeHead = -1, used = 0;
+
+    private final float[] box = new float[4];
+    private final List<Volume> found = new ArrayList<>(); // scratch for one entity test
+    private int foundCategory;
+    private final AabbTree.Visitor<Object> collector = item -> {
+        if (item instanceof Volume && (((Volume) item).mask & foundCategory) != 0) found.add((Volume) item);
+    };
+
+    /**
+     * @param colliders tree holding the entity boxes, the volumes are added to it
+     * @param volumeCategory category bit the volumes get in the tree, no other entry may use it
+     */
+    public TriggerSystem(AabbTree<Object> colliders, int volumeCategory) {
+        this.colliders = colliders;
+        this.volumeCategory = volumeCategory;
+    }
+
+    /**
+     * Registers a volume. Tracked entities already inside it enter right away.
+     */
+    public Volume add(String name, float minX, float minY, float maxX, float maxY, int mask, Listener listener) {
+        Volume volume = new Volume(name, minX, minY, maxX, maxY, mask, listener);
+        volume.handle = colliders.insert(volume, minX, minY, maxX, maxY, volumeCategory);
+        volumes.add(volume);
+        listenedMask |= mask;
+        for (int slot = 0; slot < used; slot++) {
+            if (colliderHandles[slot] < 0 || (categories[slot] & mask) == 0) continue;
+            colliders.getBox(colliderHandles[slot], box); // the last test is old for entities nothing listened to
+            if (box[0] < maxX && box[2] > minX && box[1] < maxY && box[3] > minY) {
+                inside.get(slot).add(volume);
+                listener.onEnter(volume, entities[slot]);
+            }
+        }
+        return volume;
+    }
+
+    // volume around the collision area of an object, named after it
+    public Volume add(CollisionObject obj, int mask, Listener listener) {
+        return add(obj.name, obj.getLeft(), obj.getBottom(), obj.getRight(), obj.getTop(), mask, listener);
+    }
+
+    /**
+     * Unregisters a volume, the entities inside it exit.
+     */
+    public void remove(Volume volume) {
+        if (volume.handle < 0) return;
+        colliders.remove(volume.handle);
+        volume.handle = -1;
+        volumes.remove(volume);
+        listenedMask = 0;
+        for (Volume other : volumes) listenedMask |= other.mask;
+        for (int slot = 0; slot < used; slot++) {
+            if (colliderHandles[slot] >= 0 && inside.get(slot).remove(volume)) volume.listener.onExit(volume, entities[slot]);
+        }
+    }
+
+    /**
+     * Starts tracking an entity whose box is the collider entry, entering the volumes it starts in.
+     * @return handle for update and untrack
+     */
+    public int track(Object entity, int category, int colliderHandle) {
+        int slot;
+        if (freeHead >= 0) {
+            slot = freeHead;
+            freeHead = categories[slot];
+        } else {
+            if (used == entities.length) grow();
+            slot = used++;
+            inside.add(new ArrayList<>());
+        }
+        entities[slot] = entity;
+        categories[slot] = category;
+        colliderHandles[slot] = colliderHandle;
+        Arrays.fill(boxes, slot * 4, slot * 4 + 4, Float.NaN);
+        update(slot);
+        return slot;
+    }
+
+    /**
+     * Tests the entity again, call after its collider entry moved. Returns right away when no volume reacts to
+     * its category or the box did not change since the last test, otherwise dispatches the enter / stay / exit
+     * events of this move.
+     */
+    public void update(int handle) {
+        int colliderHandle = colliderHandles[handle];
+        if (colliderHandle < 0 || (categories[handle] & listenedMask) == 0) return;
+        colliders.getBox(colliderHandle, box);
+        int b = handle * 4;
+        if (boxes[b] == box[0] && boxes[b + 1] == box[1] && boxes[b + 2] == box[2] && boxes[b + 3] == box[3]) return;
+        System.arraycopy(box, 0, boxes, b, 4);
+
+        Object entity = entities[handle];
+        List<Volume> current = inside.get(handle);
+        found.clear();
+        foundCategory = categories[handle];
+        colliders.queryOverlap(box[0], box[1], box[2], box[3], volumeCategory, collector);
+
+        for (int i = current.size() - 1; i >= 0; i--) {
+            Volume volume = current.get(i);
+            if (found.contains(volume)) continue;
+            current.remove(i);
+            volume.listener.onExit(volume, entity);
+        }
+        for (Volume volume : found) {
+            if (current.contains(volume)) {
+                volume.listener.onStay(volume, entity);
+            } else {
+                current.add(volume);
+                volume.listener.onEnter(volume, entity);
+            }
+        }
+        found.clear();
+    }
+
+    /**
+     * Stops tracking an entity, it exits every volume it is in. Its collider entry is left alone.
+     */
+    public void untrack(int handle) {
+        if (handle < 0 || colliderHandles[handle] < 0) return;
+        List<Volume> current = inside.get(handle);
+        Object entity = entities[handle];
+        for (int i = current.size() - 1; i >= 0; i--) {
+            Volume volume = current.remove(i);
+            volume.listener.onExit(volume, entity);
+        }
+        entities[handle] = null;
+        colliderHandles[handle] = -1;
+        categories[handle] = freeHead;
+        freeHead = handle;
+    }
+
+    public boolean isInside(int handle, Volume volume) {
+        return colliderHandles[handle] >= 0 && inside.get(handle).contains(volume);
+    }
+
+    private void grow() {
+        int capacity = entities.length * 2;
+        entities = Arrays.copyOf(entities, capacity);
+        categories = Arrays.copyOf(categories, capacity);
+        colliderHandles = Arrays.copyOf(colliderHandles, capacity);
+        boxes = Arrays.copyOf(boxes, capacity * 4);
+    }
+}
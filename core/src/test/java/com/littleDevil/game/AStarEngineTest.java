@@ -0,0 +1,106 @@
+package com.littleDevil.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class AStarEngineTest {
+
+    @Test
+    void pathCostsMatchTheObjectSearchRules() {
+        Random random = new Random(1);
+        for (int map = 0; map < 10; map++) {
+            TileLayer tiles = TestMaps.randomTiles(random, 40);
+            NavGrid grid = TestMaps.grid(tiles);
+            AStarEngine astar = new AStarEngine(grid);
+            int[] path = new int[grid.size()];
+
+            for (int request = 0; request < 30; request++) {
+                int start = TestMaps.walkableTile(random, grid, TestMaps.RADIUS);
+                int goal = TestMaps.walkableTile(random, grid, TestMaps.RADIUS);
+                int length = astar.findPath(grid.xOf(start), grid.yOf(start), grid.xOf(goal), grid.yOf(goal), TestMaps.RADIUS, path);
+                float expected = dijkstra(tiles, start)[goal];
+
+                if (expected == Float.MAX_VALUE) {
+                    assertEquals(0, length, "A* found a path the object search could not");
+                    continue;
+                }
+                assertTrue(length > 0, "A* missed a path");
+                assertEquals(start, path[0], "path starts at the start");
+                assertEquals(goal, path[length - 1], "path ends at the goal");
+                for (int i = 0; i < length; i++) {
+                    assertFalse(isBlocked(tiles, grid.xOf(path[i]), grid.yOf(path[i])), "path tile " + i + " is padded by a wall");
+                }
+                assertEquals(expected, TestMaps.pathCost(grid, path, length), 0.01f, "path cost");
+            }
+        }
+    }
+
+    @Test
+    void steadyStateSearchesReuseTheirArrays() {
+        Random random = new Random(2);
+        NavGrid grid = TestMaps.grid(TestMaps.randomTiles(random, 40));
+        AStarEngine astar = new AStarEngine(grid);
+        int[] path = new int[grid.size()];
+
+        astar.findPath(1, 1, 2, 2, TestMaps.RADIUS, path);
+        AStarEngine.SearchState state = AStarEngine.state();
+        float[] gCost = state.gCost;
+        int[] parent = state.parent, seen = state.seen, closed = state.closed;
+
+        for (int request = 0; request < 200; request++) {
+            int start = TestMaps.walkableTile(random, grid, TestMaps.RADIUS);
+            int goal = TestMaps.walkableTile(random, grid, TestMaps.RADIUS);
+            astar.findPath(grid.xOf(start), grid.yOf(start), grid.xOf(goal), grid.yOf(goal), TestMaps.RADIUS, path);
+        }
+        assertSame(state, AStarEngine.state(), "one state per thread");
+        assertSame(gCost, state.gCost, "g-costs reused");
+        assertSame(parent, state.parent, "parents reused");
+        assertSame(seen, state.seen, "open set stamps reused");
+        assertSame(closed, state.closed, "closed set stamps reused");
+    }
+
+    // path distances from source under the rules of the old object search: a tile is blocked when a wall is
+    // in the 3 x 3 square around it, 8 neighbors with corner cutting, √2 diagonals
+    private static float[] dijkstra(TileLayer tiles, int source) {
+        int width = tiles.width;
+        float[] distance = new float[width * tiles.height];
+        Arrays.fill(distance, Float.MAX_VALUE);
+        IntMinHeap open = new IntMinHeap(distance.length);
+        distance[source] = 0f;
+        open.add(source, 0f);
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            int cx = current % width, cy = current / width;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    int nx = cx + dx, ny = cy + dy;
+                    if (dx == 0 && dy == 0) continue;
+                    if (nx < 0 || ny < 0 || nx >= width || ny >= tiles.height || isBlocked(tiles, nx, ny)) continue;
+                    int neighbor = ny * width + nx;
+                    float cost = distance[current] + (dx != 0 && dy != 0 ? AStarEngine.DIAGONAL_COST : 1f);
+                    if (cost < distance[neighbor]) {
+                        distance[neighbor] = cost;
+                        open.update(neighbor, cost);
+                    }
+                }
+            }
+        }
+        return distance;
+    }
+
+    private static boolean isBlocked(TileLayer tiles, int tileX, int tileY) {
+        for (int y = tileY - 1; y <= tileY + 1; y++) {
+            for (int x = tileX - 1; x <= tileX + 1; x++) {
+                if (x >= 0 && y >= 0 && x < tiles.width && y < tiles.height && tiles.has(x, y, TileLayer.OBSTACLE)) return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,133 @@
+package com.littleDevil.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class AabbTreeTest {
+
+    private static final float WORLD_WIDTH = 600f, WORLD_HEIGHT = 400f;
+
+    @Test
+    void queriesMatchABruteForceScanWhileBoxesChange() {
+        Random random = new Random(24);
+        AabbTree<Integer> tree = new AabbTree<>();
+        float[][] boxes = new float[3000][];
+        int[] categories = new int[3000], handles = new int[3000];
+        List<Integer> live = new ArrayList<>();
+        AabbTree.Hit<Integer> hit = new AabbTree.Hit<>();
+        int maxHeight = 0;
+
+        for (int step = 0; step < 20000; step++) {
+            int operation = random.nextInt(10);
+            if (operation < 3 || live.size() < 5) {
+                int id = step % boxes.length;
+                if (live.contains(id)) continue;
+                float x = random.nextFloat() * WORLD_WIDTH, y = random.nextFloat() * WORLD_HEIGHT;
+                float width = 1 + random.nextFloat() * (random.nextInt(10) == 0 ? 200 : 20), height = 1 + random.nextFloat() * 20;
+                boxes[id] = new float[] {x, y, x + width, y + height};
+                categories[id] = 1 << random.nextInt(3);
+                handles[id] = tree.insert(id, x, y, x + width, y + height, categories[id]);
+                live.add(id);
+            } else if (operation < 4) {
+                tree.remove(handles[live.remove(random.nextInt(live.size()))]);
+            } else if (operation < 7) {
+                int id = live.get(random.nextInt(live.size()));
+                float dx = (random.nextFloat() - 0.5f) * 6, dy = (random.nextFloat() - 0.5f) * 6;
+                float[] box = boxes[id];
+                box[0] += dx;
+                box[2] += dx;
+                box[1] += dy;
+                box[3] += dy;
+                tree.move(handles[id], box[0], box[1], box[2], box[3]);
+            } else {
+                int mask = 1 + random.nextInt(7);
+                float x = random.nextFloat() * WORLD_WIDTH, y = random.nextFloat() * WORLD_HEIGHT;
+                float width = random.nextFloat() * 40, height = random.nextFloat() * 40;
+                float toX = x + (random.nextFloat() - 0.5f) * 300, toY = y + (random.nextFloat() - 0.5f) * 300;
+
+                Set<Integer> expected = new HashSet<>(), found = new HashSet<>();
+                for (int id : live) {
+                    float[] box = boxes[id];
+                    if ((categories[id] & mask) != 0 && box[0] < x + width && box[2] > x && box[1] < y + height && box[3] > y) expected.add(id);
+                }
+                tree.queryOverlap(x, y, x + width, y + height, mask, found::add);
+                assertEquals(expected, found, "overlaps at step " + step);
+                assertEquals(!expected.isEmpty(), tree.overlapsAny(x, y, x + width, y + height, mask), "any overlap at step " + step);
+
+                tree.raycast(x, y, toX, toY, mask, hit);
+                assertEquals(firstEntry(boxes, categories, live, mask, 0f, 0f, x, y, toX - x, toY - y, false), hit.time, 1e-4f,
+                    "ray at step " + step);
+                tree.sweep(x, y, width, height, toX - x, toY - y, mask, hit);
+                assertEquals(firstEntry(boxes, categories, live, mask, width / 2, height / 2, x + width / 2, y + height / 2,
+                    toX - x, toY - y, true), hit.time, 1e-4f, "sweep at step " + step);
+            }
+            assertEquals(live.size(), tree.size());
+            maxHeight = Math.max(maxHeight, tree.getHeight());
+        }
+        assertTrue(maxHeight < 40, "tree stays balanced, height " + maxHeight);
+    }
+
+    @Test
+    void sweptBoxesNeverEndInsideABox() {
+        Random random = new Random(25);
+        AabbTree<Object> tree = new AabbTree<>();
+        for (int i = 0; i < 120; i++) {
+            float x = random.nextFloat() * WORLD_WIDTH, y = random.nextFloat() * WORLD_HEIGHT;
+            tree.insert("wall", x, y, x + 2 + random.nextFloat() * 30, y + 2 + random.nextFloat() * 30, TileLayer.OBSTACLE);
+        }
+        TileSweep sweep = new TileSweep();
+        float width = 6f, height = 4f;
+
+        for (int move = 0; move < 20000; move++) {
+            float left = random.nextFloat() * WORLD_WIDTH, bottom = random.nextFloat() * WORLD_HEIGHT;
+            if (tree.overlapsAny(left, bottom, left + width, bottom + height, TileLayer.BLOCK)) continue;
+            float dx = (random.nextFloat() - 0.5f) * 60f, dy = (random.nextFloat() - 0.5f) * 60f;
+
+            sweep.move(tree, TileLayer.BLOCK, left, bottom, width, height, dx, dy);
+            float endX = left + sweep.moveX, endY = bottom + sweep.moveY;
+            assertFalse(tree.overlapsAny(endX, endY, endX + width, endY + height, TileLayer.BLOCK),
+                "box ended inside a wall after move " + move);
+        }
+    }
+
+    // time the point (originX, originY) moving by (dx, dy) enters the first box grown by the half extents, 1 for none
+    private static float firstEntry(float[][] boxes, int[] categories, List<Integer> live, int mask, float halfWidth, float halfHeight,
+                                    float originX, float originY, float dx, float dy, boolean skipOverlapped) {
+        float first = 1f;
+        for (int id : live) {
+            if ((categories[id] & mask) == 0) continue;
+            float[] box = boxes[id];
+            float minX = box[0] - halfWidth, minY = box[1] - halfHeight, maxX = box[2] + halfWidth, maxY = box[3] + halfHeight;
+            if (originX > minX && originX < maxX && originY > minY && originY < maxY) {
+                if (!skipOverlapped) return 0f;
+                continue;
+            }
+            float entry = 0f, exit = 1f;
+            if (dx == 0) {
+                if (originX <= minX || originX >= maxX) continue;
+            } else {
+                float t1 = (minX - originX) / dx, t2 = (maxX - originX) / dx;
+                entry = Math.max(entry, Math.min(t1, t2));
+                exit = Math.min(exit, Math.max(t1, t2));
+            }
+            if (dy == 0) {
+                if (originY <= minY || originY >= maxY) continue;
+            } else {
+                float t1 = (minY - originY) / dy, t2 = (maxY - originY) / dy;
+                entry = Math.max(entry, Math.min(t1, t2));
+                exit = Math.min(exit, Math.max(t1, t2));
+            }
+            if (entry < exit && entry < first) first = entry;
+        }
+        return first;
+    }
+}
@@ -0,0 +1,49 @@
+package com.littleDevil.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class ComponentLabelsTest {
+
+    @Test
+    void sameLabelExactlyWhenAStarFindsAPath() {
+        Random random = new Random(16);
+        for (int map = 0; map < 20; map++) {
+            // many walls so the map falls apart into several components
+            NavGrid grid = TestMaps.grid(TestMaps.randomTiles(random, 90));
+            ComponentLabels components = new ComponentLabels(grid, TestMaps.RADIUS);
+            AStarEngine astar = new AStarEngine(grid);
+            int[] path = new int[grid.size()];
+
+            for (int request = 0; request < 150; request++) {
+                int start = TestMaps.walkableTile(random, grid, TestMaps.RADIUS);
+                int goal = TestMaps.walkableTile(random, grid, TestMaps.RADIUS);
+                boolean found = astar.findPath(grid.xOf(start), grid.yOf(start), grid.xOf(goal), grid.yOf(goal), TestMaps.RADIUS, path) > 0;
+                assertEquals(found, components.labelOf(start) == components.labelOf(goal), "labels against A*");
+            }
+        }
+    }
+
+    @Test
+    void unreachableGoalsMoveIntoTheStartComponent() {
+        Random random = new Random(17);
+        NavGrid grid = TestMaps.grid(TestMaps.randomTiles(random, 90));
+        ComponentLabels components = new ComponentLabels(grid, TestMaps.RADIUS);
+
+        for (int request = 0; request < 300; request++) {
+            int start = TestMaps.walkableTile(random, grid, TestMaps.RADIUS);
+            int goalX = random.nextInt(grid.width), goalY = random.nextInt(grid.height);
+            int goal = components.findReachableGoal(grid.xOf(start), grid.yOf(start), goalX, goalY);
+            if (goal < 0) continue;
+            assertEquals(components.labelOf(start), components.labelOf(goal), "redirected goal is reachable");
+            if (components.labelOf(grid.index(goalX, goalY)) == components.labelOf(start)) {
+                assertEquals(grid.index(goalX, goalY), goal, "reachable goals are kept");
+            }
+        }
+        assertTrue(components.getComponentCount() > 1, "the test map has more than one component");
+    }
+}
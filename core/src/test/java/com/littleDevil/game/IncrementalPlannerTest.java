@@ -0,0 +1,51 @@
+package com.littleDevil.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class IncrementalPlannerTest {
+
+    @Test
+    void replansMatchAStarWhileTheGoalMovesAndTilesFlip() {
+        Random random = new Random(3);
+        TileLayer tiles = TestMaps.randomTiles(random, 30);
+        NavGrid grid = TestMaps.grid(tiles);
+        int start = TestMaps.walkableTile(random, grid, TestMaps.RADIUS);
+        int startX = grid.xOf(start), startY = grid.yOf(start);
+        IncrementalPlanner planner = new IncrementalPlanner(grid, TestMaps.RADIUS);
+        int[] path = new int[grid.size()], reference = new int[grid.size()];
+        int goal = TestMaps.walkableTile(random, grid, TestMaps.RADIUS);
+
+        for (int step = 0; step < 200; step++) {
+            if (random.nextInt(4) == 0) {
+                // flip a small rectangle away from the start, the tree is rooted there
+                int x = 1 + random.nextInt(TestMaps.WIDTH - 4), y = 1 + random.nextInt(TestMaps.HEIGHT - 4);
+                int maxX = x + random.nextInt(3), maxY = y + random.nextInt(3);
+                if (Math.max(Math.abs(x - startX), Math.abs(y - startY)) > 8) {
+                    if (random.nextBoolean()) tiles.mark(x, y, maxX, maxY, TileLayer.OBSTACLE);
+                    else tiles.clear(x, y, maxX, maxY);
+                    grid = grid.withTiles(tiles, TileLayer.OBSTACLE, x, y, maxX, maxY);
+                    planner.onTilesChanged(grid, x, y, maxX, maxY);
+                }
+            } else {
+                // the player walks a few tiles
+                int gx = Math.max(1, Math.min(grid.width - 2, grid.xOf(goal) + random.nextInt(7) - 3));
+                int gy = Math.max(1, Math.min(grid.height - 2, grid.yOf(goal) + random.nextInt(7) - 3));
+                if (grid.fits(grid.index(gx, gy), TestMaps.RADIUS)) goal = grid.index(gx, gy);
+            }
+            if (!grid.fits(goal, TestMaps.RADIUS)) continue;
+
+            int length = planner.plan(startX, startY, grid.xOf(goal), grid.yOf(goal), path);
+            int expected = new AStarEngine(grid).findPath(startX, startY, grid.xOf(goal), grid.yOf(goal), TestMaps.RADIUS, reference);
+            assertEquals(expected > 0, length > 0, "path found at step " + step);
+            if (length == 0) continue;
+            assertTrue(path[0] == start && path[length - 1] == goal, "path runs from the anchor to the goal");
+            assertEquals(TestMaps.pathCost(grid, reference, expected), TestMaps.pathCost(grid, path, length), 0.01f,
+                "path cost at step " + step);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.littleDevil.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class JpsPlusEngineTest {
+
+    @Test
+    void pathCostsMatchDijkstraWithoutCornerCutting() {
+        Random random = new Random(4);
+        for (int map = 0; map < 10; map++) {
+            NavGrid grid = TestMaps.grid(TestMaps.randomTiles(random, 40));
+            JpsPlusEngine jps = new JpsPlusEngine(grid, TestMaps.RADIUS);
+            int[] path = new int[grid.size()];
+
+            for (int request = 0; request < 30; request++) {
+                int start = TestMaps.walkableTile(random, grid, TestMaps.RADIUS);
+                int goal = TestMaps.walkableTile(random, grid, TestMaps.RADIUS);
+                int length = jps.findPath(grid.xOf(start), grid.yOf(start), grid.xOf(goal), grid.yOf(goal), path);
+                float expected = dijkstra(grid, TestMaps.RADIUS, start)[goal];
+
+                if (expected == Float.MAX_VALUE) {
+                    assertEquals(0, length, "JPS+ found a path Dijkstra did not");
+                    continue;
+                }
+                assertTrue(length > 0, "JPS+ missed a path");
+                assertEquals(start, path[0], "path starts at the start");
+                assertEquals(goal, path[length - 1], "path ends at the goal");
+                assertEquals(expected, TestMaps.pathCost(grid, path, length), 0.01f, "path cost");
+            }
+        }
+    }
+
+    @Test
+    void repairedJumpsMatchFreshPrecompute() {
+        Random random = new Random(8);
+        TileLayer tiles = TestMaps.randomTiles(random, 30);
+        NavGrid grid = TestMaps.grid(tiles);
+        JpsPlusEngine jps = new JpsPlusEngine(grid, TestMaps.RADIUS);
+
+        for (int change = 0; change < 40; change++) {
+            int x = 1 + random.nextInt(TestMaps.WIDTH - 2), y = 1 + random.nextInt(TestMaps.HEIGHT - 2);
+            int maxX = Math.min(TestMaps.WIDTH - 2, x + random.nextInt(6)), maxY = Math.min(TestMaps.HEIGHT - 2, y + random.nextInt(6));
+            if (random.nextBoolean()) tiles.mark(x, y, maxX, maxY, TileLayer.OBSTACLE);
+            else tiles.clear(x, y, maxX, maxY);
+
+            grid = grid.withTiles(tiles, TileLayer.OBSTACLE, x, y, maxX, maxY);
+            jps = new JpsPlusEngine(jps, grid, x, y, maxX, maxY);
+            JpsPlusEngine fresh = new JpsPlusEngine(grid, TestMaps.RADIUS);
+            for (int ty = 0; ty < grid.height; ty++) {
+                for (int tx = 0; tx < grid.width; tx++) {
+                    for (int d = 0; d < 8; d++) {
+                        assertEquals(fresh.getJumpDistance(tx, ty, d), jps.getJumpDistance(tx, ty, d),
+                            "jump distance at " + tx + "," + ty + " direction " + d + " after change " + change);
+                    }
+                }
+            }
+        }
+    }
+
+    // path distances from source with 8 neighbors, diagonals only between two walkable sides
+    private static float[] dijkstra(NavGrid grid, int radius, int source) {
+        float[] distance = new float[grid.size()];
+        Arrays.fill(distance, Float.MAX_VALUE);
+        IntMinHeap open = new IntMinHeap(grid.size());
+        distance[source] = 0f;
+        open.add(source, 0f);
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            int cx = grid.xOf(current), cy = grid.yOf(current);
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    if (dx == 0 && dy == 0) continue;
+                    if (!fits(grid, cx + dx, cy + dy, radius)) continue;
+                    if (dx != 0 && dy != 0 && (!fits(grid, cx + dx, cy, radius) || !fits(grid, cx, cy + dy, radius))) continue;
+                    int neighbor = grid.index(cx + dx, cy + dy);
+                    float cost = distance[current] + (dx != 0 && dy != 0 ? AStarEngine.DIAGONAL_COST : 1f);
+                    if (cost < distance[neighbor]) {
+                        distance[neighbor] = cost;
+                        open.update(neighbor, cost);
+                    }
+                }
+            }
+        }
+        return distance;
+    }
+
+    private static boolean fits(NavGrid grid, int x, int y, int radius) {
+        return grid.isInBounds(x, y) && grid.fits(grid.index(x, y), radius);
+    }
+}
@@ -0,0 +1,63 @@
+package com.littleDevil.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class LandmarkHeuristicTest {
+
+    @Test
+    void estimatesNeverExceedThePathCostAndKeepPathsOptimal() {
+        Random random = new Random(15);
+        NavGrid grid = TestMaps.grid(TestMaps.randomTiles(random, 40));
+        LandmarkHeuristic landmarks = new LandmarkHeuristic(grid, TestMaps.RADIUS);
+        assertEquals(LandmarkHeuristic.DEFAULT_LANDMARKS, landmarks.getLandmarkCount(), "landmark count");
+
+        AStarEngine plain = new AStarEngine(grid);
+        AStarEngine alt = new AStarEngine(grid, landmarks, null);
+        int[] path = new int[grid.size()];
+        for (int request = 0; request < 200; request++) {
+            int start = TestMaps.walkableTile(random, grid, TestMaps.RADIUS);
+            int goal = TestMaps.walkableTile(random, grid, TestMaps.RADIUS);
+            int length = plain.findPath(grid.xOf(start), grid.yOf(start), grid.xOf(goal), grid.yOf(goal), TestMaps.RADIUS, path);
+            if (length == 0) continue;
+            float cost = TestMaps.pathCost(grid, path, length);
+            assertTrue(landmarks.estimate(start, goal) <= cost + 0.001f, "estimate above the path cost");
+
+            int altLength = alt.findPath(grid.xOf(start), grid.yOf(start), grid.xOf(goal), grid.yOf(goal), TestMaps.RADIUS, path);
+            assertEquals(cost, TestMaps.pathCost(grid, path, altLength), 0.01f, "landmark path cost");
+        }
+    }
+
+    @Test
+    void freedTilesDropTheTablesAndStepsRebuildThem() {
+        Random random = new Random(16);
+        TileLayer tiles = TestMaps.randomTiles(random, 40);
+        NavGrid grid = TestMaps.grid(tiles);
+        LandmarkHeuristic landmarks = new LandmarkHeuristic(grid, TestMaps.RADIUS);
+
+        // blocking keeps the tables
+        tiles.mark(10, 10, 12, 12, TileLayer.OBSTACLE);
+        NavGrid blocked = grid.withTiles(tiles, TileLayer.OBSTACLE, 10, 10, 12, 12);
+        assertTrue(landmarks.forChangedGrid(blocked, 10, 10, 12, 12).isReady(), "tables kept after blocking");
+
+        // freeing drops them until the steps are done
+        tiles.clear(1, 1, TestMaps.WIDTH - 2, TestMaps.HEIGHT - 2);
+        NavGrid freed = blocked.withTiles(tiles, TileLayer.OBSTACLE, 1, 1, TestMaps.WIDTH - 2, TestMaps.HEIGHT - 2);
+        LandmarkHeuristic rebuilt = landmarks.forChangedGrid(freed, 1, 1, TestMaps.WIDTH - 2, TestMaps.HEIGHT - 2);
+        assertFalse(rebuilt.isReady(), "tables dropped after freeing");
+        int steps = 1;
+        while (!rebuilt.buildStep()) steps++;
+        assertEquals(LandmarkHeuristic.DEFAULT_LANDMARKS, steps, "one step per landmark");
+
+        LandmarkHeuristic fresh = new LandmarkHeuristic(freed, TestMaps.RADIUS);
+        for (int i = 0; i < 1000; i++) {
+            int a = random.nextInt(freed.size()), b = random.nextInt(freed.size());
+            assertEquals(fresh.estimate(a, b), rebuilt.estimate(a, b), 0f, "stepwise tables match a full build");
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.littleDevil.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class MultiResolutionPathfinderTest {
+
+    @Test
+    void pathsAreWalkableAndCloseToOptimal() {
+        Random random = new Random(13);
+        float optimal = 0f, planned = 0f;
+        for (int map = 0; map < 10; map++) {
+            NavGrid grid = TestMaps.grid(TestMaps.randomTiles(random, 25));
+            MultiResolutionPathfinder pathfinder = new MultiResolutionPathfinder(grid, TestMaps.RADIUS);
+            AStarEngine astar = new AStarEngine(grid);
+            int[] path = new int[grid.size()], reference = new int[grid.size()];
+
+            for (int request = 0; request < 50; request++) {
+                int start = TestMaps.walkableTile(random, grid, TestMaps.RADIUS);
+                int goal = TestMaps.walkableTile(random, grid, TestMaps.RADIUS);
+                int length = pathfinder.findPath(grid.xOf(start), grid.yOf(start), grid.xOf(goal), grid.yOf(goal), path);
+                int expected = astar.findPath(grid.xOf(start), grid.yOf(start), grid.xOf(goal), grid.yOf(goal), TestMaps.RADIUS, reference);
+                assertEquals(expected > 0, length > 0, "path found exactly when A* finds one");
+                if (length == 0) continue;
+
+                assertEquals(start, path[0], "path starts at the start");
+                assertEquals(goal, path[length - 1], "path ends at the goal");
+                for (int i = 0; i < length; i++) assertTrue(grid.fits(path[i], TestMaps.RADIUS), "path tile " + i + " is walkable");
+                float best = TestMaps.pathCost(grid, reference, expected), cost = TestMaps.pathCost(grid, path, length);
+                assertTrue(cost >= best - 0.01f, "no path beats A*");
+                optimal += best;
+                planned += cost;
+            }
+        }
+        // the middle part follows cell centers, on these cluttered maps that costs about a fifth more
+        assertTrue(planned <= optimal * 1.25f, "coarse paths stay within 25% of optimal in total, got " + planned / optimal);
+    }
+}
@@ -0,0 +1,45 @@
+package com.littleDevil.game;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class NavGridTest {
+
+    @Test
+    void repairedGridsMatchAFreshBuild() {
+        Random random = new Random(23);
+        TileLayer tiles = TestMaps.randomTiles(random, 30);
+        NavGrid grid = TestMaps.grid(tiles);
+        int factor = MultiResolutionPathfinder.CELL_SIZE;
+        NavGrid coarse = grid.downsample(factor, TestMaps.RADIUS);
+
+        for (int change = 0; change < 200; change++) {
+            int x = random.nextInt(TestMaps.WIDTH), y = random.nextInt(TestMaps.HEIGHT);
+            int maxX = x + random.nextInt(10), maxY = y + random.nextInt(10);
+            if (random.nextBoolean()) tiles.mark(x, y, maxX, maxY, TileLayer.OBSTACLE);
+            else tiles.clear(x, y, maxX, maxY);
+
+            grid = grid.withTiles(tiles, TileLayer.OBSTACLE, x, y, maxX, maxY);
+            coarse = coarse.withDownsampledRegion(grid, factor, TestMaps.RADIUS, x, y, maxX, maxY);
+            NavGrid fresh = TestMaps.grid(tiles);
+            NavGrid freshCoarse = fresh.downsample(factor, TestMaps.RADIUS);
+
+            assertArrayEquals(fresh.blocked, grid.blocked, "blocked tiles after change " + change);
+            assertClearance(fresh, grid, "clearance after change " + change);
+            assertArrayEquals(freshCoarse.blocked, coarse.blocked, "coarse cells after change " + change);
+            assertClearance(freshCoarse, coarse, "coarse clearance after change " + change);
+        }
+    }
+
+    // clearance is only exact up to REPAIR_MARGIN after a repair, larger values just have to stay larger
+    private static void assertClearance(NavGrid expected, NavGrid actual, String message) {
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(Math.min(expected.clearance[i], NavGrid.REPAIR_MARGIN), Math.min(actual.clearance[i], NavGrid.REPAIR_MARGIN),
+                message + " at tile " + i);
+        }
+    }
+}
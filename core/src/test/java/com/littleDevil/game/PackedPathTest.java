@@ -0,0 +1,79 @@
+package com.littleDevil.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class PackedPathTest {
+
+    private static final int WIDTH = 80;
+
+    @Test
+    void pathsReturnToThePoolOnTheLastRelease() {
+        int[] tiles = tiles(20000); // a bucket no other test uses
+        PackedPath path = PackedPath.copyOf(tiles, tiles.length, WIDTH);
+        path.retain();
+        path.retain();
+
+        path.release();
+        PackedPath other = PackedPath.copyOf(tiles, tiles.length, WIDTH);
+        assertNotSame(path, other, "a retained path is not handed out again");
+
+        path.release();
+        tiles[0] = 7;
+        PackedPath reused = PackedPath.copyOf(tiles, tiles.length - 1, WIDTH);
+        assertSame(path, reused, "the released path is reused for a path of the same size class");
+        assertEquals(tiles.length - 1, reused.length());
+        assertEquals(7, reused.tileAt(0), "the reused path holds the new tiles");
+    }
+
+    @Test
+    void emptyPathsAreShared() {
+        assertSame(PackedPath.EMPTY, PackedPath.copyOf(new int[4], 0, WIDTH));
+        PackedPath.EMPTY.retain().release();
+        PackedPath.EMPTY.release();
+        assertTrue(PackedPath.EMPTY.isEmpty());
+    }
+
+    @Test
+    void tilesKeepTheirCoordinates() {
+        PackedPath path = PackedPath.copyOf(new int[] {5 * WIDTH + 3, 6 * WIDTH + 4}, 2, WIDTH);
+        assertEquals(3, path.xAt(0));
+        assertEquals(5, path.yAt(0));
+        assertEquals(4, path.xAt(1));
+        assertEquals(6, path.yAt(1));
+    }
+
+    @Test
+    void cursorHoldsItsPathAndResumesNearTheOldTarget() {
+        int[] tiles = tiles(10000); // a bucket no other test uses
+        PackedPath first = PackedPath.copyOf(tiles, tiles.length, WIDTH);
+        PathCursor cursor = new PathCursor();
+        cursor.follow(first, 0f, 0f);
+        assertSame(first, cursor.getPath());
+        assertEquals(0, cursor.getIndex(), "starts at the closest tile");
+        cursor.advance();
+        cursor.advance();
+
+        // the new path passes the old target (2, 0) as its fourth tile
+        PackedPath second = PackedPath.copyOf(new int[] {WIDTH - 1, 0, 1, 2, 3}, 5, WIDTH);
+        cursor.follow(second, 0f, 0f);
+        assertEquals(3, cursor.getIndex(), "resumes at the tile closest to the old target");
+        assertEquals(2, cursor.targetX());
+        assertSame(first, PackedPath.copyOf(tiles, tiles.length, WIDTH), "the replaced path went back to the pool");
+
+        cursor.clear();
+        assertFalse(cursor.hasTarget());
+    }
+
+    // a straight row of tiles from x = 0
+    private static int[] tiles(int length) {
+        int[] tiles = new int[length];
+        for (int i = 0; i < length; i++) tiles[i] = i;
+        return tiles;
+    }
+}
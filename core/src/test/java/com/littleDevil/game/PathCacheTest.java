@@ -0,0 +1,88 @@
+package com.littleDevil.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class PathCacheTest {
+
+    private static final Pathfinder.Mode MODE = Pathfinder.Mode.ASTAR;
+    private static final int WIDTH = 80;
+
+    @Test
+    void evictsTheLeastRecentlyUsedPath() {
+        PathCache cache = new PathCache(2, 1);
+        PackedPath a = path(1), b = path(2), c = path(3);
+        cache.put(MODE, 0, PathCache.UNIFORM_COSTS, 1, 1, 10, 10, 1, a);
+        cache.put(MODE, 0, PathCache.UNIFORM_COSTS, 2, 2, 10, 10, 1, b);
+        assertSame(a, cache.get(MODE, 0, PathCache.UNIFORM_COSTS, 1, 1, 10, 10, 1), "a is cached");
+
+        cache.put(MODE, 0, PathCache.UNIFORM_COSTS, 3, 3, 10, 10, 1, c); // b is now the least recently used
+        assertEquals(2, cache.size());
+        assertNull(cache.get(MODE, 0, PathCache.UNIFORM_COSTS, 2, 2, 10, 10, 1), "b was evicted");
+        assertSame(a, cache.get(MODE, 0, PathCache.UNIFORM_COSTS, 1, 1, 10, 10, 1), "a was kept");
+        assertSame(c, cache.get(MODE, 0, PathCache.UNIFORM_COSTS, 3, 3, 10, 10, 1), "c was kept");
+        assertEquals(3, cache.hits);
+        assertEquals(1, cache.misses);
+    }
+
+    @Test
+    void startsInOneRegionShareAPath() {
+        PathCache cache = new PathCache(8, 2);
+        PackedPath a = path(1);
+        cache.put(MODE, 0, PathCache.UNIFORM_COSTS, 4, 4, 10, 10, 1, a);
+        assertSame(a, cache.get(MODE, 0, PathCache.UNIFORM_COSTS, 5, 5, 10, 10, 1), "same region");
+        assertNull(cache.get(MODE, 0, PathCache.UNIFORM_COSTS, 6, 5, 10, 10, 1), "next region");
+        assertNull(cache.get(MODE, 0, PathCache.UNIFORM_COSTS, 4, 4, 11, 10, 1), "other goal");
+        assertNull(cache.get(MODE, 0, PathCache.UNIFORM_COSTS, 4, 4, 10, 10, 2), "other radius");
+        assertNull(cache.get(Pathfinder.Mode.JPS_PLUS, 0, PathCache.UNIFORM_COSTS, 4, 4, 10, 10, 1), "other mode");
+        assertNull(cache.get(Pathfinder.Mode.INCREMENTAL, 0, PathCache.UNIFORM_COSTS, 4, 4, 10, 10, 1), "never cached");
+    }
+
+    @Test
+    void aNewGridVersionDropsEveryPath() {
+        PathCache cache = new PathCache(8, 1);
+        cache.put(MODE, 1, PathCache.UNIFORM_COSTS, 1, 1, 10, 10, 1, path(1));
+        cache.put(MODE, 1, PathCache.UNIFORM_COSTS, 2, 2, 10, 10, 1, path(2));
+
+        assertNull(cache.get(MODE, 2, PathCache.UNIFORM_COSTS, 1, 1, 10, 10, 1), "solved on the old grid");
+        assertEquals(0, cache.size());
+        cache.put(MODE, 1, PathCache.UNIFORM_COSTS, 1, 1, 10, 10, 1, path(1)); // a late result from the old grid
+        assertEquals(0, cache.size(), "late results are ignored");
+    }
+
+    @Test
+    void costWeightedPathsLastUntilTheCostsChange() {
+        NavGrid grid = TestMaps.grid(TestMaps.randomTiles(new Random(9), 0));
+        CostLayer costs = new CostLayer(grid);
+        PathCache cache = new PathCache(8, 1);
+        PackedPath a = path(1);
+        cache.put(MODE, 0, PathCache.costVersionOf(costs), 1, 1, 10, 10, 1, a);
+        assertSame(a, cache.get(MODE, 0, PathCache.costVersionOf(costs), 1, 1, 10, 10, 1), "same costs");
+
+        int solvedWith = PathCache.costVersionOf(costs);
+        costs.setTerrainCost(5, 5, 1f);
+        assertEquals(solvedWith, PathCache.costVersionOf(costs), "an unchanged multiplier keeps the version");
+        costs.setTerrainCost(5, 5, CostLayer.STAIRS_COST);
+        assertNull(cache.get(MODE, 0, PathCache.costVersionOf(costs), 1, 1, 10, 10, 1), "solved with the old costs");
+        cache.put(MODE, 0, solvedWith, 1, 1, 10, 10, 1, path(1)); // a late result from the old costs
+        assertEquals(0, cache.size(), "late results are ignored");
+    }
+
+    @Test
+    void evictedPathsAreReleased() {
+        PathCache cache = new PathCache(1, 1);
+        PackedPath evicted = PackedPath.copyOf(new int[40000], 40000, WIDTH); // a bucket no other test uses
+        cache.put(MODE, 0, PathCache.UNIFORM_COSTS, 1, 1, 10, 10, 1, evicted);
+        cache.put(MODE, 0, PathCache.UNIFORM_COSTS, 2, 2, 10, 10, 1, path(2));
+        assertSame(evicted, PackedPath.copyOf(new int[40000], 40000, WIDTH), "the evicted path went back to the pool");
+    }
+
+    private static PackedPath path(int tile) {
+        return PackedPath.of(tile, WIDTH);
+    }
+}
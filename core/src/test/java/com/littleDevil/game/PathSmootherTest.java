@@ -0,0 +1,50 @@
+package com.littleDevil.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class PathSmootherTest {
+
+    @Test
+    void shortcutsNeverCostMoreThanThePathTheyReplace() {
+        Random random = new Random(17);
+        NavGrid grid = TestMaps.grid(TestMaps.randomTiles(random, 30));
+        CostLayer costs = new CostLayer(grid);
+        for (int i = 0; i < 600; i++) costs.setTerrainCost(random.nextInt(grid.width), random.nextInt(grid.height), 1 + random.nextInt(4));
+
+        AStarEngine astar = new AStarEngine(grid, null, costs);
+        int[] path = new int[grid.size()], uniform = new int[grid.size()];
+        int costlierWithoutCosts = 0;
+        for (int request = 0; request < 300; request++) {
+            int start = TestMaps.walkableTile(random, grid, TestMaps.RADIUS);
+            int goal = TestMaps.walkableTile(random, grid, TestMaps.RADIUS);
+            int length = astar.findPath(grid.xOf(start), grid.yOf(start), grid.xOf(goal), grid.yOf(goal), TestMaps.RADIUS, path);
+            if (length < 3) continue;
+            float cost = cost(grid, costs, path, length);
+            System.arraycopy(path, 0, uniform, 0, length);
+
+            int smoothed = PathSmoother.smooth(grid, costs, path, length, TestMaps.RADIUS);
+            assertEquals(start, path[0], "start is kept");
+            assertEquals(goal, path[smoothed - 1], "goal is kept");
+            assertTrue(cost(grid, costs, path, smoothed) <= cost * 1.001f, "smoothing made request " + request + " costlier");
+
+            int pulled = PathSmoother.smooth(grid, uniform, length, TestMaps.RADIUS);
+            if (cost(grid, costs, uniform, pulled) > cost * 1.001f) costlierWithoutCosts++;
+        }
+        assertTrue(costlierWithoutCosts > 0, "the map has detours that plain string-pulling cuts through");
+    }
+
+    // each waypoint segment costs its length times the mean multiplier of the tiles it enters
+    private static float cost(NavGrid grid, CostLayer costs, int[] path, int length) {
+        float cost = 0f;
+        for (int i = 1; i < length; i++) {
+            int ax = grid.xOf(path[i - 1]), ay = grid.yOf(path[i - 1]), bx = grid.xOf(path[i]), by = grid.yOf(path[i]);
+            cost += (float) Math.sqrt((bx - ax) * (bx - ax) + (by - ay) * (by - ay)) * costs.meanMultiplier(ax, ay, bx, by, false);
+        }
+        return cost;
+    }
+}
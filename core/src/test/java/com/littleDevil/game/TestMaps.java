@@ -0,0 +1,54 @@
+package com.littleDevil.game;
+
+import java.util.Random;
+
+/**
+ * Synthetic maps for the tests: a wall ring around the border and scattered wall rectangles,
+ * built on TileLayer directly since the real level needs textures.
+ */
+final class TestMaps {
+
+    static final int WIDTH = 80, HEIGHT = 60;
+    static final int RADIUS = Pathfinder.COLLISION_PADDING;
+
+    private TestMaps() {
+    }
+
+    // border ring plus count random walls of up to 8 x 8 tiles
+    static TileLayer randomTiles(Random random, int count) {
+        TileLayer tiles = new TileLayer(WIDTH, HEIGHT);
+        tiles.mark(0, 0, WIDTH - 1, 0, TileLayer.OBSTACLE);
+        tiles.mark(0, HEIGHT - 1, WIDTH - 1, HEIGHT - 1, TileLayer.OBSTACLE);
+        tiles.mark(0, 0, 0, HEIGHT - 1, TileLayer.OBSTACLE);
+        tiles.mark(WIDTH - 1, 0, WIDTH - 1, HEIGHT - 1, TileLayer.OBSTACLE);
+        for (int i = 0; i < count; i++) {
+            int x = random.nextInt(WIDTH), y = random.nextInt(HEIGHT);
+            tiles.mark(x, y, x + random.nextInt(8), y + random.nextInt(8), TileLayer.OBSTACLE);
+        }
+        return tiles;
+    }
+
+    static NavGrid grid(TileLayer tiles) {
+        return NavGrid.fromTiles(tiles, TileLayer.OBSTACLE);
+    }
+
+    // random tile an agent of the radius can stand on
+    static int walkableTile(Random random, NavGrid grid, int radius) {
+        while (true) {
+            int tile = random.nextInt(grid.size());
+            if (grid.fits(tile, radius)) return tile;
+        }
+    }
+
+    // length of a per-tile path with the AStarEngine step costs
+    static float pathCost(NavGrid grid, int[] path, int length) {
+        float cost = 0f;
+        for (int i = 1; i < length; i++) {
+            int dx = Math.abs(grid.xOf(path[i]) - grid.xOf(path[i - 1]));
+            int dy = Math.abs(grid.yOf(path[i]) - grid.yOf(path[i - 1]));
+            if (dx > 1 || dy > 1) throw new AssertionError("path jumps from tile " + path[i - 1] + " to " + path[i]);
+            cost += dx + dy == 2 ? AStarEngine.DIAGONAL_COST : 1f;
+        }
+        return cost;
+    }
+}
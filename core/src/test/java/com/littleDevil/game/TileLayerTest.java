@@ -0,0 +1,73 @@
+package com.littleDevil.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TileLayerTest {
+
+    private static final int[] FLAGS = {TileLayer.BORDER, TileLayer.OBSTACLE, TileLayer.STAIRS, TileLayer.ALTAR};
+
+    @Test
+    void blockedCountsMatchATileCountAfterEveryChange() {
+        Random random = new Random(22);
+        TileLayer tiles = TestMaps.randomTiles(random, 40);
+
+        for (int change = 0; change < 300; change++) {
+            int x = random.nextInt(tiles.width), y = random.nextInt(tiles.height);
+            int maxX = x + random.nextInt(8), maxY = y + random.nextInt(8);
+            if (random.nextInt(3) == 0) tiles.clear(x, y, maxX, maxY);
+            else tiles.mark(x, y, maxX, maxY, FLAGS[random.nextInt(FLAGS.length)]);
+
+            // several queries per change, the first one refreshes the table
+            for (int query = 0; query < 5; query++) {
+                int minX = random.nextInt(tiles.width) - 2, minY = random.nextInt(tiles.height) - 2;
+                int qx = minX + random.nextInt(30), qy = minY + random.nextInt(30);
+                assertEquals(count(tiles, minX, minY, qx, qy), tiles.countBlocked(minX, minY, qx, qy),
+                    "blocked tiles in " + minX + "," + minY + " - " + qx + "," + qy + " after change " + change);
+            }
+        }
+    }
+
+    @Test
+    void queriesMatchTheFlagsOfEveryTile() {
+        Random random = new Random(19);
+        TileLayer tiles = TestMaps.randomTiles(random, 20);
+        for (int i = 0; i < 40; i++) {
+            int x = random.nextInt(tiles.width), y = random.nextInt(tiles.height);
+            tiles.mark(x, y, x + random.nextInt(6), y + random.nextInt(6), FLAGS[random.nextInt(FLAGS.length)]);
+        }
+
+        for (int query = 0; query < 500; query++) {
+            int minX = random.nextInt(tiles.width), minY = random.nextInt(tiles.height);
+            int maxX = Math.min(tiles.width - 1, minX + random.nextInt(10)), maxY = Math.min(tiles.height - 1, minY + random.nextInt(10));
+            int expected = 0;
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) expected |= tiles.get(x, y);
+            }
+            assertEquals(expected, tiles.query(minX, minY, maxX, maxY), "OR of the flags");
+        }
+        for (int flag : FLAGS) {
+            int tile = -1;
+            for (int i = 0; i < tiles.width * tiles.height; i++) {
+                if ((tiles.get(i % tiles.width, i / tiles.width) & flag) == 0) continue;
+                tile = tiles.nextTile(flag, tile + 1);
+                assertEquals(i, tile, "next tile with flag " + flag);
+            }
+            assertEquals(-1, tiles.nextTile(flag, tile + 1), "no tile with flag " + flag + " after the last");
+        }
+    }
+
+    // BLOCK tiles in the rectangle, clipped to the layer
+    private static int count(TileLayer tiles, int minX, int minY, int maxX, int maxY) {
+        int count = 0;
+        for (int y = Math.max(0, minY); y <= Math.min(tiles.height - 1, maxY); y++) {
+            for (int x = Math.max(0, minX); x <= Math.min(tiles.width - 1, maxX); x++) {
+                if ((tiles.get(x, y) & TileLayer.BLOCK) != 0) count++;
+            }
+        }
+        return count;
+    }
+}
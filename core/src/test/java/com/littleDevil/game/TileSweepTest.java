@@ -0,0 +1,62 @@
+package com.littleDevil.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class TileSweepTest {
+
+    private static final int TILE_SIZE = 4;
+    private static final float WIDTH = 6f, HEIGHT = 4f; // a collision box a bit wider than a tile
+
+    @Test
+    void boxesNeverEndInsideAWall() {
+        Random random = new Random(21);
+        TileLayer tiles = TestMaps.randomTiles(random, 60);
+        TileSweep sweep = new TileSweep();
+
+        for (int move = 0; move < 20000; move++) {
+            float left = random.nextFloat() * (TestMaps.WIDTH * TILE_SIZE - WIDTH);
+            float bottom = random.nextFloat() * (TestMaps.HEIGHT * TILE_SIZE - HEIGHT);
+            if (isBlocked(tiles, left, bottom)) continue;
+            // up to a dash step, several tiles in one frame
+            float dx = (random.nextFloat() - 0.5f) * 40f, dy = (random.nextFloat() - 0.5f) * 40f;
+
+            sweep.move(tiles, TILE_SIZE, TileLayer.BLOCK, left, bottom, WIDTH, HEIGHT, dx, dy);
+            assertFalse(isBlocked(tiles, left + sweep.moveX, bottom + sweep.moveY),
+                "box ended inside a wall after move " + move);
+        }
+    }
+
+    @Test
+    void unobstructedMovesCrossNoWall() {
+        Random random = new Random(22);
+        TileLayer tiles = TestMaps.randomTiles(random, 60);
+        TileSweep sweep = new TileSweep();
+
+        for (int move = 0; move < 20000; move++) {
+            float left = random.nextFloat() * (TestMaps.WIDTH * TILE_SIZE - WIDTH);
+            float bottom = random.nextFloat() * (TestMaps.HEIGHT * TILE_SIZE - HEIGHT);
+            if (isBlocked(tiles, left, bottom)) continue;
+            float dx = (random.nextFloat() - 0.5f) * 40f, dy = (random.nextFloat() - 0.5f) * 40f;
+            if (sweep.sweep(tiles, TILE_SIZE, TileLayer.BLOCK, left, bottom, WIDTH, HEIGHT, dx, dy)) continue;
+
+            assertEquals(dx, sweep.moveX, 0f, "free move keeps its x");
+            assertEquals(dy, sweep.moveY, 0f, "free move keeps its y");
+            // walk the move in steps far below a tile, none may touch a wall
+            for (int i = 1; i <= 64; i++) {
+                float t = i / 64f;
+                assertFalse(isBlocked(tiles, left + dx * t, bottom + dy * t),
+                    "free move " + move + " crossed a wall");
+            }
+        }
+    }
+
+    // whether the box at (left, bottom) touches a BLOCK tile, the same coverage the sweeps use
+    private static boolean isBlocked(TileLayer tiles, float left, float bottom) {
+        return (tiles.queryBox(left, bottom, WIDTH, HEIGHT, TILE_SIZE) & TileLayer.BLOCK) != 0;
+    }
+}
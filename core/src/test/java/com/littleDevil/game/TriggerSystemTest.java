@@ -0,0 +1,119 @@
+package com.littleDevil.game;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class TriggerSystemTest {
+
+    private static final int ENTITIES = 20;
+    private static final float WIDTH = 8f, HEIGHT = 4f;
+
+    private final Map<TriggerSystem.Volume, Set<Object>> occupants = new HashMap<>(); // from enter / exit
+    private int enters, stays, exits;
+
+    // fails as soon as an event contradicts the ones before it
+    private final TriggerSystem.Listener listener = new TriggerSystem.Listener() {
+        @Override
+        public void onEnter(TriggerSystem.Volume volume, Object entity) {
+            enters++;
+            assertTrue(occupants.computeIfAbsent(volume, v -> new HashSet<>()).add(entity), "entered twice");
+        }
+
+        @Override
+        public void onStay(TriggerSystem.Volume volume, Object entity) {
+            stays++;
+            assertTrue(occupants.get(volume).contains(entity), "stayed without entering");
+        }
+
+        @Override
+        public void onExit(TriggerSystem.Volume volume, Object entity) {
+            exits++;
+            assertTrue(occupants.get(volume).remove(entity), "left without entering");
+        }
+    };
+
+    @Test
+    void insideMatchesABruteForceTestAfterEveryMove() {
+        Random random = new Random(25);
+        AabbTree<Object> colliders = new AabbTree<>();
+        for (int i = 0; i < 30; i++) colliders.insert("wall", i * 20, i * 10, i * 20 + 15, i * 10 + 7, TileLayer.OBSTACLE);
+        TriggerSystem triggers = new TriggerSystem(colliders, GameWorld.COLLIDER_TRIGGER);
+
+        float[][] positions = new float[ENTITIES][2];
+        int[] colliderHandles = new int[ENTITIES], handles = new int[ENTITIES], categories = new int[ENTITIES];
+        for (int i = 0; i < ENTITIES; i++) {
+            positions[i][0] = random.nextFloat() * 600;
+            positions[i][1] = random.nextFloat() * 400;
+            categories[i] = i % 2 == 0 ? GameWorld.COLLIDER_PLAYER : GameWorld.COLLIDER_ENEMY;
+            colliderHandles[i] = colliders.insert(i, positions[i][0], positions[i][1], positions[i][0] + WIDTH, positions[i][1] + HEIGHT, categories[i]);
+            handles[i] = triggers.track(i, categories[i], colliderHandles[i]);
+        }
+        List<TriggerSystem.Volume> volumes = new ArrayList<>();
+        for (int v = 0; v < 50; v++) {
+            float x = random.nextFloat() * 580, y = random.nextFloat() * 380;
+            int mask = v % 5 == 0 ? GameWorld.COLLIDER_PLAYER | GameWorld.COLLIDER_ENEMY : GameWorld.COLLIDER_PLAYER;
+            volumes.add(triggers.add("volume " + v, x, y, x + 10 + random.nextFloat() * 40, y + 10 + random.nextFloat() * 40, mask, listener));
+        }
+
+        for (int move = 0; move < 20000; move++) {
+            int i = random.nextInt(ENTITIES);
+            positions[i][0] += (random.nextFloat() - 0.5f) * 10;
+            positions[i][1] += (random.nextFloat() - 0.5f) * 10;
+            colliders.move(colliderHandles[i], positions[i][0], positions[i][1], positions[i][0] + WIDTH, positions[i][1] + HEIGHT);
+            triggers.update(handles[i]);
+
+            for (TriggerSystem.Volume volume : volumes) {
+                boolean expected = (categories[i] & volume.mask) != 0 && overlaps(positions[i], volume);
+                assertEquals(expected, triggers.isInside(handles[i], volume), volume.name + " after move " + move);
+                assertEquals(expected, occupants.getOrDefault(volume, Set.of()).contains(i), volume.name + " events after move " + move);
+            }
+        }
+        assertTrue(enters > 0 && stays > 0 && exits > 0, "the moves entered, stayed in and left volumes");
+
+        // removed volumes and untracked entities leave everything
+        for (int v = 0; v < 10; v++) triggers.remove(volumes.get(v));
+        for (int i = 0; i < ENTITIES; i++) {
+            for (int v = 0; v < 10; v++) assertFalse(triggers.isInside(handles[i], volumes.get(v)), "inside a removed volume");
+        }
+        for (int i = 0; i < ENTITIES; i++) triggers.untrack(handles[i]);
+        for (Set<Object> inside : occupants.values()) assertTrue(inside.isEmpty(), "untracked entities exited");
+        assertEquals(enters, exits);
+    }
+
+    @Test
+    void volumesOnlyReactToTheirCategories() {
+        AabbTree<Object> colliders = new AabbTree<>();
+        TriggerSystem triggers = new TriggerSystem(colliders, GameWorld.COLLIDER_TRIGGER);
+        int enemyBox = colliders.insert("enemy", 0, 0, WIDTH, HEIGHT, GameWorld.COLLIDER_ENEMY);
+        int enemy = triggers.track("enemy", GameWorld.COLLIDER_ENEMY, enemyBox);
+        TriggerSystem.Volume altar = triggers.add("altar", -10, -10, 10, 10, GameWorld.COLLIDER_PLAYER, listener);
+        assertFalse(triggers.isInside(enemy, altar), "the altar only reacts to the player");
+
+        int playerBox = colliders.insert("player", 20, 20, 20 + WIDTH, 20 + HEIGHT, GameWorld.COLLIDER_PLAYER);
+        int player = triggers.track("player", GameWorld.COLLIDER_PLAYER, playerBox);
+        assertFalse(triggers.isInside(player, altar));
+        colliders.move(playerBox, 0, 0, WIDTH, HEIGHT);
+        triggers.update(player);
+        assertTrue(triggers.isInside(player, altar), "the player walked in");
+
+        // a volume added over tracked entities enters them right away
+        TriggerSystem.Volume any = triggers.add("any", -1, -1, 1, 1, GameWorld.COLLIDER_PLAYER | GameWorld.COLLIDER_ENEMY, listener);
+        assertTrue(triggers.isInside(enemy, any) && triggers.isInside(player, any), "entered on add");
+        assertEquals(Set.of("enemy", "player"), occupants.get(any));
+    }
+
+    private static boolean overlaps(float[] position, TriggerSystem.Volume volume) {
+        return position[0] < volume.maxX && position[0] + WIDTH > volume.minX && position[1] < volume.maxY && position[1] + HEIGHT > volume.minY;
+    }
+}